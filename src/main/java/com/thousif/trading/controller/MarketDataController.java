@@ -1,15 +1,24 @@
 package com.thousif.trading.controller;
 
+import com.thousif.trading.dto.response.CandleResponse;
+import com.thousif.trading.dto.response.TickHistoryResponse;
+import com.thousif.trading.service.market.CandleService;
 import com.thousif.trading.service.market.MarketDataService;
+import com.thousif.trading.service.market.MarketDepthService;
+import com.thousif.trading.service.market.ticks.TickStore;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.annotation.SendToUser;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -17,6 +26,9 @@ import java.util.Map;
 public class MarketDataController {
 
     private final MarketDataService marketDataService;
+    private final MarketDepthService marketDepthService;
+    private final CandleService candleService;
+    private final TickStore tickStore;
 
     @MessageMapping("/subscribe")
     @SendTo("/topic/market-data")
@@ -24,8 +36,10 @@ public class MarketDataController {
         return "Subscribed to market data updates";
     }
 
-    @MessageMapping("/subscribe/{symbol}")
-    @SendTo("/topic/stock/{symbol}")
+    // The snapshot goes to the requesting session only, deltas follow on /topic/stock/{symbol}.
+    // A client that sees a gap in the delta sequence sends /app/resync/{symbol} for a fresh snapshot.
+    @MessageMapping({"/subscribe/{symbol}", "/resync/{symbol}"})
+    @SendToUser(destinations = "/queue/stock/{symbol}", broadcast = false)
     public Map<String, Object> subscribeToStock(@DestinationVariable String symbol){
         return marketDataService.getLatestMarketData(symbol);
     }
@@ -36,4 +50,30 @@ public class MarketDataController {
         return marketDataService.getLatestMarketData(symbol.toUpperCase());
     }
 
+    // served as the pre-serialized bytes of the current book version
+    @GetMapping(value = "/api/market-data/{symbol}/depth", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public byte[] getDepth(@PathVariable String symbol, @RequestParam(defaultValue = "10") int levels){
+        return marketDepthService.getDepth(symbol.toUpperCase(), levels);
+    }
+
+    @GetMapping("/api/market-data/{symbol}/candles")
+    @ResponseBody
+    public List<CandleResponse> getCandles(@PathVariable String symbol,
+                                           @RequestParam(defaultValue = "1m") String tf,
+                                           @RequestParam(defaultValue = "500") int limit){
+        return candleService.getCandles(symbol.toUpperCase(), tf, limit);
+    }
+
+    // from and to are epoch millis, both inclusive
+    @GetMapping("/api/market-data/{symbol}/ticks")
+    @ResponseBody
+    public TickHistoryResponse getTicks(@PathVariable String symbol,
+                                        @RequestParam long from,
+                                        @RequestParam long to,
+                                        @RequestParam(defaultValue = "ticks") String stream,
+                                        @RequestParam(defaultValue = "1000") int limit){
+        return tickStore.getHistory(symbol.toUpperCase(), stream, from, to, Math.min(limit, 10_000));
+    }
+
 }
@@ -1,7 +1,10 @@
 package com.thousif.trading.controller;
 
+import com.thousif.trading.dto.request.AmendOrderRequest;
+import com.thousif.trading.dto.request.BatchOrderRequest;
 import com.thousif.trading.dto.request.OrderRequest;
 import com.thousif.trading.dto.response.OrderResponse;
+import com.thousif.trading.service.sequencer.OrderSequencer;
 import com.thousif.trading.service.trading.OrderService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
@@ -12,6 +15,7 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -19,12 +23,20 @@ import java.util.List;
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderSequencer orderSequencer;
 
     @PostMapping
-    public ResponseEntity<OrderResponse> placeOrder(@Valid @RequestBody OrderRequest request,
-                                                    Authentication authentication) {
-        OrderResponse response = orderService.placeOrder(request, authentication.getName());
-        return ResponseEntity.ok(response);
+    public CompletableFuture<ResponseEntity<OrderResponse>> placeOrder(@Valid @RequestBody OrderRequest request,
+                                                                       Authentication authentication) {
+        return orderSequencer.placeOrder(request, authentication.getName())
+                .thenApply(ResponseEntity::ok);
+    }
+
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<List<OrderResponse>>> placeOrders(@Valid @RequestBody BatchOrderRequest request,
+                                                                              Authentication authentication) {
+        return orderSequencer.placeOrders(request.getOrders(), authentication.getName())
+                .thenApply(ResponseEntity::ok);
     }
 
     @GetMapping
@@ -47,6 +59,21 @@ public class OrderController {
         return ResponseEntity.ok(order);
     }
 
+    @DeleteMapping
+    public ResponseEntity<List<OrderResponse>> cancelOrders(@RequestParam(required = false) String symbol,
+                                                            Authentication authentication) {
+        List<OrderResponse> cancelled = orderService.cancelOrders(authentication.getName(), symbol);
+        return ResponseEntity.ok(cancelled);
+    }
+
+    @PutMapping("/{orderId}")
+    public ResponseEntity<OrderResponse> amendOrder(@PathVariable String orderId,
+                                                    @Valid @RequestBody AmendOrderRequest request,
+                                                    Authentication authentication) {
+        OrderResponse response = orderService.amendOrder(orderId, request, authentication.getName());
+        return ResponseEntity.ok(response);
+    }
+
     @DeleteMapping("/{orderId}")
     public ResponseEntity<OrderResponse> cancelOrder(@PathVariable String orderId,
                                                      Authentication authentication) {
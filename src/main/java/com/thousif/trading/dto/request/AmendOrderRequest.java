@@ -0,0 +1,26 @@
+package com.thousif.trading.dto.request;
+
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AmendOrderRequest {
+
+    @DecimalMin(value = "0.01", message = "Price must be greater than 0")
+    private BigDecimal price; // New limit price, unchanged when absent
+
+    @Min(value = 1, message = "Quantity must be at least 1")
+    @Max(value = 10000, message = "Quantity cannot exceed 10000")
+    private Integer quantity; // New total quantity including what already executed, unchanged when absent
+
+}
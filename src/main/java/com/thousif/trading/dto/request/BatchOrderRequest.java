@@ -0,0 +1,23 @@
+package com.thousif.trading.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchOrderRequest {
+
+    @NotEmpty(message = "At least one order is required")
+    @Size(max = 500, message = "A batch cannot exceed 500 orders")
+    private List<@Valid OrderRequest> orders;
+
+}
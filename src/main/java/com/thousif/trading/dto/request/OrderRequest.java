@@ -9,6 +9,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 
 @Data
 @Builder
@@ -39,9 +40,15 @@ public class OrderRequest {
     @Pattern(regexp = "DAY|IOC|GTD", message = "Validity must be DAY, IOC, or GTD")
     private String validity;
 
+    @FutureOrPresent(message = "Good till date cannot be in the past")
+    private LocalDate goodTillDate; // Required for GTD orders
+
     @Min(value = 0, message = "Disclosed quantity cannot be negative")
     private Integer disclosedQuantity;
 
+    @Size(max = 64, message = "Client order id cannot exceed 64 characters")
+    private String clientOrderId; // a retry with the same id returns the original order
+
     @Size(max = 500, message = "Notes cannot exceed 500 characters")
     private String notes;
 
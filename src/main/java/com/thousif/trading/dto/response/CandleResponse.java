@@ -0,0 +1,25 @@
+package com.thousif.trading.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CandleResponse {
+
+    private String symbol;
+    private String timeframe;
+    private long time; // bar start, epoch millis
+    private BigDecimal open;
+    private BigDecimal high;
+    private BigDecimal low;
+    private BigDecimal close;
+    private long volume;
+
+}
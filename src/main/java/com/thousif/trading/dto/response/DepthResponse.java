@@ -0,0 +1,33 @@
+package com.thousif.trading.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DepthResponse {
+
+    private String symbol;
+    private long version; // changes whenever the book does
+    private List<Level> bids;
+    private List<Level> asks;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Level {
+
+        private BigDecimal price;
+        private long quantity; // shown quantity, iceberg reserves are not included
+        private int orders;
+
+    }
+
+}
@@ -9,6 +9,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Data
@@ -30,6 +31,7 @@ public class OrderResponse {
     private Integer executedQuantity;
     private OrderStatus status;
     private String validity;
+    private LocalDate goodTillDate;
     private Integer disclosedQuantity;
     private BigDecimal triggerPrice;
     private String notes;
@@ -0,0 +1,25 @@
+package com.thousif.trading.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Column per field, as stored
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TickHistoryResponse {
+
+    private String symbol;
+    private String stream;
+    private List<Long> times; // epoch millis
+    private List<BigDecimal> prices;
+    private List<Long> volumes; // cumulative day volume for ticks, traded quantity for trades
+    private boolean truncated; // more rows in the range than the limit
+
+}
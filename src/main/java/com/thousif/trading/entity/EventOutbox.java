@@ -0,0 +1,38 @@
+package com.thousif.trading.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// A Kafka event written in the same transaction as the change it describes, published by EventOutboxRelay
+@Entity
+@Table(name = "event_outbox")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EventOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "event_outbox_id_generator")
+    @TableGenerator(name = "event_outbox_id_generator", table = "id_generators", pkColumnName = "name",
+            valueColumnName = "next_val", pkColumnValue = "event_outbox", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "topic", nullable = false, length = 100)
+    private String topic;
+
+    @Column(name = "event_key", length = 100)
+    private String eventKey;
+
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+}
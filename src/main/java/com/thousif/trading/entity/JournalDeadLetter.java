@@ -0,0 +1,42 @@
+package com.thousif.trading.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// A journal record the projector skipped after it kept failing on its own; the journal still holds it
+@Entity
+@Table(name = "journal_dead_letters")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalDeadLetter {
+
+    @Id
+    @Column(name = "sequence")
+    private Long sequence;
+
+    @Column(name = "record_type", nullable = false, length = 20)
+    private String recordType;
+
+    @Column(name = "order_id", length = 50)
+    private String orderId;
+
+    @Column(name = "symbol", length = 20)
+    private String symbol;
+
+    @Column(name = "error", length = 1000)
+    private String error;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+}
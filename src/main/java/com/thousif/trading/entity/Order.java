@@ -13,6 +13,7 @@ import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
@@ -24,8 +25,11 @@ import java.time.LocalDateTime;
 @EntityListeners(AuditingEntityListener.class)
 public class Order {
 
+    // pooled table ids keep JDBC batching on for the projector and basket inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.TABLE, generator = "order_id_generator")
+    @TableGenerator(name = "order_id_generator", table = "id_generators", pkColumnName = "name",
+            valueColumnName = "next_val", pkColumnValue = "orders", allocationSize = 50)
     private Long id;
 
     @Column(name = "order_id", unique = true, nullable = false)
@@ -60,6 +64,7 @@ public class Order {
     private BigDecimal executedPrice;
 
     @Column(name = "executed_quantity")
+    @Builder.Default
     private Integer executedQuantity = 0;
 
     @Enumerated(EnumType.STRING)
@@ -69,6 +74,9 @@ public class Order {
     @Column(name = "validity")
     private String validity = "DAY"; // DAY, IOC, GTD
 
+    @Column(name = "good_till_date")
+    private LocalDate goodTillDate;
+
     @Column(name = "disclosed_quantity")
     private Integer disclosedQuantity;
 
@@ -0,0 +1,7 @@
+package com.thousif.trading.enums;
+
+public enum NotificationType {
+    WELCOME,
+    ORDER_PLACED,
+    ORDER_EXECUTED
+}
@@ -0,0 +1,14 @@
+package com.thousif.trading.repository;
+
+import com.thousif.trading.entity.EventOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface EventOutboxRepository extends JpaRepository<EventOutbox, Long> {
+
+    List<EventOutbox> findAllByOrderByIdAsc(Pageable pageable);
+}
@@ -0,0 +1,15 @@
+package com.thousif.trading.repository;
+
+import com.thousif.trading.entity.JournalDeadLetter;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface JournalDeadLetterRepository extends JpaRepository<JournalDeadLetter, Long> {
+
+    List<JournalDeadLetter> findByOrderIdIn(Collection<String> orderIds);
+
+}
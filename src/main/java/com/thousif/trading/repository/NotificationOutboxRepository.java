@@ -0,0 +1,14 @@
+package com.thousif.trading.repository;
+
+import com.thousif.trading.entity.NotificationOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutbox, Long> {
+
+    List<NotificationOutbox> findAllByOrderByIdAsc(Pageable pageable);
+}
@@ -3,22 +3,42 @@ package com.thousif.trading.repository;
 import com.thousif.trading.entity.Order;
 import com.thousif.trading.entity.User;
 import com.thousif.trading.enums.OrderStatus;
+import com.thousif.trading.enums.OrderType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
     Optional<Order> findByOrderId(String orderId);
 
+    @Query("SELECT o FROM Order o JOIN FETCH o.user JOIN FETCH o.stock WHERE o.orderId = :orderId")
+    Optional<Order> findDetailedByOrderId(@Param("orderId") String orderId);
+
+    // ACCEPT records already applied before a crash wiped the projector checkpoint
+    @Query("SELECT o.orderId FROM Order o WHERE o.orderId IN :orderIds")
+    Set<String> findExistingOrderIds(@Param("orderIds") Collection<String> orderIds);
+
+    List<Order> findByOrderIdIn(Collection<String> orderIds);
+
+    // bulk status change for mass cancels, bypasses and clears the persistence context
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Order o SET o.status = :status, o.updatedAt = :updatedAt WHERE o.orderId IN :orderIds")
+    int updateStatus(@Param("orderIds") Collection<String> orderIds,
+                     @Param("status") OrderStatus status,
+                     @Param("updatedAt") LocalDateTime updatedAt);
+
     Optional<Order> findByKiteOrderId(String kiteOrderId);
 
     List<Order> findByUserOrderByCreatedAtDesc(User user);
@@ -37,6 +57,11 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT COUNT(o) FROM Order o WHERE o.user = :user AND o.status = :status")
     long countUserOrdersByStatus(@Param("user") User user, @Param("status") OrderStatus status);
 
-    @Query("SELECT o FROM Order o WHERE status IN :status ORDER BY o.createdAt ASC")
+    @Query("SELECT o FROM Order o WHERE o.status IN :statuses ORDER BY o.createdAt ASC")
     List<Order> findPendingOrders(@Param("statuses") List<OrderStatus> statuses);
+
+    @Query("SELECT o FROM Order o JOIN FETCH o.stock JOIN FETCH o.user " +
+            "WHERE o.orderType IN :orderTypes AND o.status IN :statuses ORDER BY o.id ASC")
+    List<Order> findRestingOrders(@Param("orderTypes") List<OrderType> orderTypes,
+                                  @Param("statuses") List<OrderStatus> statuses);
 }
@@ -33,6 +33,9 @@ public interface PortfolioRepository extends JpaRepository<Portfolio, Long> {
     @Query("SELECT SUM(p.investedAmount) FROM Portfolio p WHERE p.user = :user AND p.quantity > 0")
     BigDecimal getTotalRealizedPnl(@Param("user") User user);
 
+    @Query("SELECT p FROM Portfolio p JOIN FETCH p.stock WHERE p.user.id = :userId AND p.quantity > 0")
+    List<Portfolio> findHoldings(@Param("userId") Long userId);
+
     @Query("SELECT COUNT(p) FROM Portfolio p WHERE p.user = :user AND p.quantity > 0")
     long countActiveHoldings(@Param("user") User user);
 }
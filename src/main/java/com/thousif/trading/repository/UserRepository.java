@@ -2,10 +2,12 @@ package com.thousif.trading.repository;
 
 import com.thousif.trading.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.Optional;
 
 @Repository
@@ -24,4 +26,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query("SELECT u FROM User u WHERE u.username = :identifier OR u.email = :identifier")
     Optional<User> findByUsernameOrEmail(@Param("identifier") String identifier);
 
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE User u SET u.usedMargin = CASE WHEN u.usedMargin > :amount THEN u.usedMargin - :amount ELSE 0 END " +
+            "WHERE u.id = :userId")
+    int releaseMargin(@Param("userId") Long userId, @Param("amount") BigDecimal amount);
+
 }
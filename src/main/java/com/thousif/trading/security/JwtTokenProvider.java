@@ -1,12 +1,13 @@
 package com.thousif.trading.security;
 
-import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
 import javax.crypto.SecretKey;
 import java.util.Date;
@@ -15,6 +16,9 @@ import java.util.Date;
 @Slf4j
 public class JwtTokenProvider {
 
+    // the bearer token's subject once checked, "" when the request carries no valid token
+    private static final String USERNAME_ATTRIBUTE = JwtTokenProvider.class.getName() + ".username";
+
     private final SecretKey secretKey;
     private final long jwtExpiration;
 
@@ -36,23 +40,29 @@ public class JwtTokenProvider {
                 .compact();
     }
 
-    public String getUsernameFromToken(String token){
-        Claims claims = Jwts.parser()
-                .verifyWith(secretKey)
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-
-        return claims.getSubject();
+    // The rate limiter and the authentication filter both need the caller, the signature is checked
+    // once per request and the result shared through a request attribute.
+    public String resolveUsername(HttpServletRequest request) {
+        Object resolved = request.getAttribute(USERNAME_ATTRIBUTE);
+        if (resolved == null) {
+            String username = null;
+            String bearerToken = request.getHeader("Authorization");
+            if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
+                username = getValidatedUsername(bearerToken.substring(7));
+            }
+            resolved = username != null ? username : "";
+            request.setAttribute(USERNAME_ATTRIBUTE, resolved);
+        }
+        return StringUtils.hasText((String) resolved) ? (String) resolved : null;
     }
 
-    public boolean validateToken(String token){
-        try{
-            Jwts.parser().verifyWith(secretKey).build().parseSignedClaims(token);
-            return true;
+    // the subject of a token with a valid signature and expiry, null otherwise
+    public String getValidatedUsername(String token) {
+        try {
+            return Jwts.parser().verifyWith(secretKey).build().parseSignedClaims(token).getPayload().getSubject();
         } catch (JwtException | IllegalArgumentException e) {
             log.error("JWT validation error: {}", e.getMessage());
-            return false;
+            return null;
         }
     }
 }
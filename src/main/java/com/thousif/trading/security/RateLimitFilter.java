@@ -0,0 +1,174 @@
+package com.thousif.trading.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thousif.trading.exception.ErrorResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Per-user token buckets in front of the order endpoints. Runs ahead of JWT authentication, which loads
+// the user from the database, so a client over its limit is turned away with a 429 before any DB work.
+// The token is verified once here and the authentication filter reuses the result.
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String ORDERS_PATH = "/api/orders";
+    private static final String BATCH_PATH = ORDERS_PATH + "/batch";
+
+    enum EndpointClass { PLACE, BATCH, CANCEL, READ }
+
+    private final JwtTokenProvider jwtTokenProvider;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper objectMapper;
+
+    @Value("${trading.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${trading.rate-limit.place.capacity:20}")
+    private int placeCapacity;
+
+    @Value("${trading.rate-limit.place.refill-per-second:10}")
+    private double placeRefill;
+
+    // a batch holds up to 500 orders, so it draws from its own, much slower bucket
+    @Value("${trading.rate-limit.batch.capacity:2}")
+    private int batchCapacity;
+
+    @Value("${trading.rate-limit.batch.refill-per-second:0.05}")
+    private double batchRefill;
+
+    @Value("${trading.rate-limit.cancel.capacity:40}")
+    private int cancelCapacity;
+
+    @Value("${trading.rate-limit.cancel.refill-per-second:20}")
+    private double cancelRefill;
+
+    @Value("${trading.rate-limit.read.capacity:50}")
+    private int readCapacity;
+
+    @Value("${trading.rate-limit.read.refill-per-second:25}")
+    private double readRefill;
+
+    private final Map<EndpointClass, Map<String, TokenBucket>> buckets = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Counter> rejected = new EnumMap<>(EndpointClass.class);
+
+    @PostConstruct
+    public void registerMeters() {
+        for (EndpointClass endpoint : EndpointClass.values()) {
+            Map<String, TokenBucket> users = new ConcurrentHashMap<>();
+            buckets.put(endpoint, users);
+            String tag = endpoint.name().toLowerCase();
+
+            rejected.put(endpoint, Counter.builder("orders.rate_limit.rejected")
+                    .description("Order API requests rejected by the rate limiter")
+                    .tag("endpoint", tag)
+                    .register(meterRegistry));
+            Gauge.builder("orders.rate_limit.capacity", () -> capacity(endpoint))
+                    .description("Burst size of each user's bucket")
+                    .tag("endpoint", tag)
+                    .register(meterRegistry);
+            Gauge.builder("orders.rate_limit.refill", () -> refill(endpoint))
+                    .description("Tokens added to each user's bucket per second")
+                    .tag("endpoint", tag)
+                    .register(meterRegistry);
+            Gauge.builder("orders.rate_limit.buckets", users, Map::size)
+                    .description("Users holding a bucket")
+                    .tag("endpoint", tag)
+                    .register(meterRegistry);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !request.getRequestURI().startsWith(ORDERS_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String username = jwtTokenProvider.resolveUsername(request);
+        // unauthenticated requests are left for the security chain to refuse
+        if (username == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        EndpointClass endpoint = classify(request.getMethod(), request.getRequestURI());
+        TokenBucket bucket = buckets.get(endpoint).computeIfAbsent(username,
+                u -> new TokenBucket(capacity(endpoint), refill(endpoint)));
+        if (bucket.tryAcquire()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        rejected.get(endpoint).increment();
+        log.debug("Rate limited {} request from {}", endpoint, username);
+        reject(request, response, bucket.waitNanos());
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, long waitNanos) throws IOException {
+        ErrorResponse error = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                .error("Too Many Requests")
+                .message("Rate limit exceeded, retry later")
+                .path(request.getRequestURI())
+                .build();
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999))));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+
+    static EndpointClass classify(String method, String uri) {
+        if (HttpMethod.GET.matches(method)) {
+            return EndpointClass.READ;
+        }
+        if (HttpMethod.POST.matches(method) && uri.startsWith(BATCH_PATH)) {
+            return EndpointClass.BATCH;
+        }
+        // amending is charged like cancelling, both only touch an order already accepted
+        return HttpMethod.POST.matches(method) ? EndpointClass.PLACE : EndpointClass.CANCEL;
+    }
+
+    private int capacity(EndpointClass endpoint) {
+        return switch (endpoint) {
+            case PLACE -> placeCapacity;
+            case BATCH -> batchCapacity;
+            case CANCEL -> cancelCapacity;
+            case READ -> readCapacity;
+        };
+    }
+
+    private double refill(EndpointClass endpoint) {
+        return switch (endpoint) {
+            case PLACE -> placeRefill;
+            case BATCH -> batchRefill;
+            case CANCEL -> cancelRefill;
+            case READ -> readRefill;
+        };
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.thousif.trading.security;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Lock-free token bucket, kept as a single theoretical arrival time instead of a token count and a
+// refill timestamp (GCRA). Each token pushes it one refill interval into the future and a request is
+// refused once that would put it more than a full bucket ahead of now, so taking a token is one CAS.
+public class TokenBucket {
+
+    private final long refillNanos;
+    private final long burstNanos;
+    // starts in the past, i.e. with a full bucket
+    private final AtomicLong arrival = new AtomicLong(Long.MIN_VALUE);
+
+    public TokenBucket(int capacity, double refillPerSecond) {
+        this.refillNanos = (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond);
+        this.burstNanos = refillNanos * capacity;
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    boolean tryAcquire(long now) {
+        while (true) {
+            long current = arrival.get();
+            long next = Math.max(current, now) + refillNanos;
+            if (next - now > burstNanos) {
+                return false;
+            }
+            if (arrival.compareAndSet(current, next)) {
+                return true;
+            }
+        }
+    }
+
+    // nanoseconds until the next token is available, 0 when one is available now
+    public long waitNanos() {
+        return waitNanos(System.nanoTime());
+    }
+
+    long waitNanos(long now) {
+        return Math.max(0, Math.max(arrival.get(), now) - now + refillNanos - burstNanos);
+    }
+
+}
@@ -57,8 +57,8 @@ public class AuthService {
         user.setAvailableBalance(new BigDecimal("100000.00")); // Demo balance
         user = userRepository.save(user);
 
-        // Send welcome email asynchronously
-        notificationService.sendWelcomeNotifications(user);
+        // Delivered by the notification relay once the registration commits
+        notificationService.enqueueWelcome(user);
 
         String token = jwtTokenProvider.generateToken(user.getUsername());
 
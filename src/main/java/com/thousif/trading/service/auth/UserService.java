@@ -3,11 +3,11 @@ package com.thousif.trading.service.auth;
 import com.thousif.trading.entity.User;
 import com.thousif.trading.exception.TradingPlatformException;
 import com.thousif.trading.repository.UserRepository;
+import com.thousif.trading.service.ledger.AccountLedger;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.util.Map;
 
 @Service
@@ -15,6 +15,7 @@ import java.util.Map;
 public class UserService {
 
     private final UserRepository userRepository;
+    private final AccountLedger accountLedger;
 
     public User findByUsernameOrEmail(String identifier){
         return userRepository.findByUsernameOrEmail(identifier)
@@ -32,18 +33,12 @@ public class UserService {
     }
 
     public Map<String, Object> getUserBalance(Authentication authentication){
-        User user = userRepository.findByUsername(authentication.getName())
-                .orElseThrow(() -> new TradingPlatformException("User not found"));
+        // the ledger is ahead of the users table, which the journal projector updates behind it
+        AccountLedger.Account account = accountLedger.account(authentication.getName());
         return Map.of(
-                "availableBalance", user.getAvailableBalance(),
-                "usedMargin", user.getUsedMargin()
+                "availableBalance", account.getAvailableBalance(),
+                "usedMargin", account.getUsedMarginAmount()
         );
     }
 
-    public User updateBalance(String username, BigDecimal amount) {
-        User user = findByUsername(username);
-        user.setAvailableBalance(user.getAvailableBalance().add(amount));
-        return userRepository.save(user);
-    }
-
 }
@@ -2,10 +2,14 @@ package com.thousif.trading.service.cache;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
@@ -24,6 +28,28 @@ public class CacheService {
         }
     }
 
+    // SET NX for every key in one pipelined round trip, null when redis could not be reached
+    public List<Boolean> cacheObjectsIfAbsent(List<String> keys, Object value, Duration ttl){
+        try{
+            List<Object> results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) {
+                    ValueOperations<String, Object> values = (ValueOperations<String, Object>) operations.opsForValue();
+                    for (String key : keys) {
+                        values.setIfAbsent(key, value, ttl);
+                    }
+                    return null;
+                }
+            });
+            return results.stream().map(Boolean.class::cast).toList();
+        }
+        catch (Exception e){
+            log.error("Failed to cache {} object(s) if absent", keys.size(), e);
+            return null;
+        }
+    }
+
     public Object getCacheObject(String key){
         try{
             return redisTemplate.opsForValue().get(key);
@@ -0,0 +1,221 @@
+package com.thousif.trading.service.cache;
+
+import com.thousif.trading.dto.response.OrderResponse;
+import com.thousif.trading.exception.TradingPlatformException;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// Remembers recently placed orders by the client's own order id so a retried submission gets the
+// original response instead of a second order. The local index is bounded and entries expire in
+// insertion order; redis carries the ids across nodes and is skipped whenever it cannot be reached.
+// A new id is claimed in redis before its order is placed, or two nodes could both place a retried order.
+// The request thread only queues the claim: a claim thread sends everything queued in one pipelined
+// round trip and the placement continues on a virtual thread once its claim is back. Placements complete
+// on the sequencer shard threads, so the redis writes behind them run on a thread of their own, and a
+// failed claim keeps redis off the dedup path for a while instead of timing out on every order.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class ClientOrderIdCache {
+
+    private static final String KEY_PREFIX = "order:client:";
+    private static final String PENDING = "PENDING";
+    private static final int MAX_PIPELINED_CLAIMS = 256;
+
+    private final CacheService cacheService;
+
+    @Value("${trading.orders.dedup.ttl-minutes:15}")
+    private long ttlMinutes;
+
+    @Value("${trading.orders.dedup.max-entries:100000}")
+    private int maxEntries;
+
+    @Value("${trading.orders.dedup.redis-enabled:true}")
+    private boolean redisEnabled;
+
+    @Value("${trading.orders.dedup.redis-retry-ms:5000}")
+    private long redisRetryMillis;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Queued> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final ExecutorService redisWriter = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "client-order-id-redis");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Queue<Claim> claims = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean claiming = new AtomicBoolean();
+    private final ExecutorService redisClaimer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "client-order-id-claims");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService placer = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("client-order-id-place-", 0).factory());
+    // redis is not asked again before this time after a claim failed
+    private volatile long redisRetryAt;
+
+    // A concurrent retry of an order still in flight waits for the same result. A failed placement is
+    // forgotten, so the client can retry it with the same id.
+    public CompletableFuture<OrderResponse> place(String username, String clientOrderId,
+                                                  Supplier<CompletableFuture<OrderResponse>> placement) {
+        if (clientOrderId == null || clientOrderId.isBlank()) {
+            return placement.get();
+        }
+
+        String key = username + ":" + clientOrderId;
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(new CompletableFuture<>(), now + Duration.ofMinutes(ttlMinutes).toMillis());
+        Entry existing = entries.putIfAbsent(key, entry);
+        while (existing != null) {
+            if (existing.expiresAt > now) {
+                log.info("Duplicate client order id {} from {}, returning the original order", clientOrderId, username);
+                return existing.result;
+            }
+            if (entries.replace(key, existing, entry)) {
+                break;
+            }
+            existing = entries.putIfAbsent(key, entry);
+        }
+        insertionOrder.add(new Queued(key, entry));
+        evict(now);
+
+        String remoteKey = KEY_PREFIX + key;
+        if (!redisAvailable(now)) {
+            execute(key, entry, remoteKey, false, placement);
+            return entry.result;
+        }
+        claim(remoteKey).thenAcceptAsync(claimed -> {
+            try {
+                if (claimed == null) {
+                    // unreachable, the claim call already logged the failure
+                    redisRetryAt = System.currentTimeMillis() + redisRetryMillis;
+                    execute(key, entry, remoteKey, false, placement);
+                } else if (claimed) {
+                    execute(key, entry, remoteKey, true, placement);
+                } else {
+                    // placed, or being placed, through another node
+                    Object stored = cacheService.getCacheObject(remoteKey);
+                    if (stored instanceof OrderResponse response) {
+                        entry.result.complete(response);
+                    } else {
+                        entries.remove(key, entry);
+                        entry.result.completeExceptionally(new TradingPlatformException(
+                                "Order " + clientOrderId + " is already being placed, retry shortly"));
+                    }
+                }
+            } catch (RuntimeException e) {
+                entries.remove(key, entry);
+                entry.result.completeExceptionally(e);
+            }
+        }, placer);
+        return entry.result;
+    }
+
+    private void execute(String key, Entry entry, String remoteKey, boolean claimedRemotely,
+                         Supplier<CompletableFuture<OrderResponse>> placement) {
+        CompletableFuture<OrderResponse> placed;
+        try {
+            placed = placement.get();
+        } catch (RuntimeException e) {
+            placed = CompletableFuture.failedFuture(e);
+        }
+        placed.whenCompleteAsync((response, error) -> {
+            if (error != null) {
+                entries.remove(key, entry);
+                if (claimedRemotely) {
+                    cacheService.evictCache(remoteKey);
+                }
+                entry.result.completeExceptionally(error);
+            } else {
+                if (claimedRemotely) {
+                    cacheService.cacheObject(remoteKey, response, Duration.ofMinutes(ttlMinutes));
+                }
+                entry.result.complete(response);
+            }
+        }, redisWriter);
+    }
+
+    // completes with whether the key was claimed, or null when redis could not be reached
+    private CompletableFuture<Boolean> claim(String remoteKey) {
+        Claim claim = new Claim(remoteKey, new CompletableFuture<>());
+        claims.add(claim);
+        if (claiming.compareAndSet(false, true)) {
+            redisClaimer.execute(this::sendClaims);
+        }
+        return claim.result;
+    }
+
+    // claims queued while a round trip is in flight go out together in the next one
+    private void sendClaims() {
+        while (true) {
+            List<Claim> batch = new ArrayList<>();
+            Claim claim;
+            while (batch.size() < MAX_PIPELINED_CLAIMS && (claim = claims.poll()) != null) {
+                batch.add(claim);
+            }
+            if (batch.isEmpty()) {
+                claiming.set(false);
+                // a claim queued after the last poll found the flag still set and relies on this thread
+                if (claims.isEmpty() || !claiming.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+
+            List<Boolean> claimed = cacheService.cacheObjectsIfAbsent(
+                    batch.stream().map(Claim::key).toList(), PENDING, Duration.ofMinutes(ttlMinutes));
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(claimed != null ? claimed.get(i) : null);
+            }
+        }
+    }
+
+    private boolean redisAvailable(long now) {
+        return redisEnabled && now >= redisRetryAt;
+    }
+
+    // entries share one ttl, so the oldest inserted key is always the first to expire
+    private void evict(long now) {
+        Queued oldest;
+        while ((oldest = insertionOrder.peek()) != null
+                && (entries.size() > maxEntries || oldest.entry.expiresAt <= now)) {
+            insertionOrder.poll();
+            // no-op when the key has since been placed again under a newer entry
+            entries.remove(oldest.key, oldest.entry);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        redisClaimer.shutdown();
+        placer.shutdown();
+        redisWriter.shutdown();
+    }
+
+    private record Entry(CompletableFuture<OrderResponse> result, long expiresAt) {
+    }
+
+    private record Queued(String key, Entry entry) {
+    }
+
+    private record Claim(String key, CompletableFuture<Boolean> result) {
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.thousif.trading.service.expiry;
+
+import com.thousif.trading.entity.Order;
+import com.thousif.trading.service.journal.JournalRecord;
+import com.thousif.trading.service.journal.OrderJournal;
+import com.thousif.trading.service.matching.MatchingEngine;
+import com.thousif.trading.service.matching.OrderHandle;
+import com.thousif.trading.service.matching.OrderHandleIndex;
+import com.thousif.trading.service.matching.RestingOrder;
+import com.thousif.trading.service.matching.StopTriggerEngine;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+// Expires DAY and GTD orders at market close through a timing wheel, so no scan of open orders is needed.
+// Orders that already left the book or stop index by then are skipped.
+// Expired remainders are journaled as one CANCEL group per tick, which releases their margin in one batch.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OrderExpiryService implements Runnable {
+
+    private final MatchingEngine matchingEngine;
+    private final StopTriggerEngine stopTriggerEngine;
+    private final OrderJournal orderJournal;
+    private final OrderHandleIndex orderHandleIndex;
+
+    @Value("${trading.validity.market-close:15:30}")
+    private String marketCloseTime;
+
+    @Value("${trading.validity.zone:Asia/Kolkata}")
+    private String zoneId;
+
+    @Value("${trading.validity.tick-millis:1000}")
+    private long tickMillis;
+
+    @Value("${trading.validity.batch-size:500}")
+    private int batchSize;
+
+    // producers hand orders over here, the wheel itself is only touched by the expiry thread
+    private final Queue<Expiry> incoming = new ConcurrentLinkedQueue<>();
+    private LocalTime marketClose;
+    private ZoneId zone;
+    private TimingWheel<Expiry> wheel;
+    private volatile boolean running = true;
+    private Thread worker;
+
+    @PostConstruct
+    public void start() {
+        marketClose = LocalTime.parse(marketCloseTime);
+        zone = ZoneId.of(zoneId);
+        wheel = new TimingWheel<>(tickMillis, 4, System.currentTimeMillis());
+        worker = new Thread(this, "order-expiry");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // called once an order rests in the book or waits for its trigger
+    public void schedule(Order order) {
+        long goodTill = order.getGoodTillDate() != null ? order.getGoodTillDate().toEpochDay() : 0L;
+        schedule(order.getOrderId(), order.getStock().getSymbol(), order.getValidity(), goodTill,
+                System.currentTimeMillis());
+    }
+
+    // recovered orders keep the deadline of the day they were accepted on, even if it already passed
+    public void schedule(JournalRecord accept) {
+        schedule(accept.getOrderId(), accept.getSymbol(), accept.getValidity(), accept.getGoodTillDate(),
+                accept.getTimestamp());
+    }
+
+    private void schedule(String orderId, String symbol, String validity, long goodTill, long acceptedAt) {
+        if ("IOC".equals(validity)) {
+            return;
+        }
+        incoming.add(new Expiry(orderId, symbol, deadline(validity, goodTill, acceptedAt)));
+    }
+
+    // DAY orders live until the close of the day they were accepted on, GTD orders until the close of their date
+    public long deadline(String validity, long goodTillEpochDay, long acceptedAt) {
+        LocalDate day;
+        // null validity is treated as DAY, like the column default
+        if ("GTD".equals(validity) && goodTillEpochDay > 0) {
+            day = LocalDate.ofEpochDay(goodTillEpochDay);
+        } else {
+            ZonedDateTime accepted = Instant.ofEpochMilli(acceptedAt).atZone(zone);
+            day = accepted.toLocalTime().isBefore(marketClose)
+                    ? accepted.toLocalDate()
+                    : accepted.toLocalDate().plusDays(1);
+        }
+        return day.atTime(marketClose).atZone(zone).toInstant().toEpochMilli();
+    }
+
+    @Override
+    public void run() {
+        List<Expiry> expired = new ArrayList<>();
+        while (running) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(tickMillis);
+
+                Expiry expiry;
+                while ((expiry = incoming.poll()) != null) {
+                    wheel.add(expiry, expiry.deadline());
+                }
+                wheel.advanceTo(System.currentTimeMillis(), expired::add);
+
+                for (int i = 0; i < expired.size(); i += batchSize) {
+                    expire(expired.subList(i, Math.min(i + batchSize, expired.size())));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Order expiry tick failed", e);
+            } finally {
+                expired.clear();
+            }
+        }
+    }
+
+    private void expire(List<Expiry> batch) {
+        List<JournalRecord> cancels = new ArrayList<>(batch.size());
+        for (Expiry expiry : batch) {
+            RestingOrder resting = matchingEngine.cancel(expiry.symbol(), expiry.orderId());
+            if (resting != null) {
+                cancels.add(JournalRecord.cancel(expiry.orderId(), expiry.symbol(), resting.getRemaining()));
+            } else {
+                // untriggered stops have not filled, but may have been amended since they were scheduled
+                OrderHandle handle = orderHandleIndex.get(expiry.orderId());
+                if (handle != null && stopTriggerEngine.cancel(expiry.symbol(), expiry.orderId())) {
+                    cancels.add(JournalRecord.cancel(expiry.orderId(), expiry.symbol(), handle.getRemaining()));
+                }
+            }
+        }
+        if (!cancels.isEmpty()) {
+            orderJournal.appendAll(cancels);
+            log.info("Expired {} order(s)", cancels.size());
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.interrupt();
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private record Expiry(String orderId, String symbol, long deadline) {
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.thousif.trading.service.expiry;
+
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+
+// Hierarchical timing wheel. Level i has SLOTS buckets that each span SLOTS^i ticks; adding is O(1)
+// and every tick empties one level-0 bucket, cascading a higher-level bucket down when its window starts.
+// Not thread-safe, owned by a single driving thread.
+final class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int MASK = SLOTS - 1;
+
+    private final long tickMillis;
+    private final int levels;
+    private final ArrayDeque<Entry<T>>[][] buckets;
+    private final long horizon;
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMillis, int levels, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.levels = levels;
+        this.buckets = new ArrayDeque[levels][SLOTS];
+        this.horizon = 1L << (SLOT_BITS * levels);
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    void add(T item, long deadlineMillis) {
+        long deadlineTick = Math.max(deadlineMillis / tickMillis, currentTick + 1);
+        place(new Entry<>(item, deadlineTick));
+        size++;
+    }
+
+    // fires everything due up to now, in tick order
+    void advanceTo(long nowMillis, Consumer<T> expired) {
+        long target = nowMillis / tickMillis;
+        while (currentTick < target) {
+            currentTick++;
+            cascade(1);
+
+            ArrayDeque<Entry<T>> bucket = buckets[0][(int) (currentTick & MASK)];
+            if (bucket != null) {
+                Entry<T> entry;
+                while ((entry = bucket.poll()) != null) {
+                    size--;
+                    expired.accept(entry.item);
+                }
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void cascade(int level) {
+        if (level >= levels || ((currentTick >> (SLOT_BITS * (level - 1))) & MASK) != 0) {
+            return;
+        }
+        // the higher windows only start when this one wraps as well
+        cascade(level + 1);
+
+        ArrayDeque<Entry<T>> bucket = buckets[level][(int) ((currentTick >> (SLOT_BITS * level)) & MASK)];
+        if (bucket == null || bucket.isEmpty()) {
+            return;
+        }
+        int count = bucket.size();
+        for (int i = 0; i < count; i++) {
+            place(bucket.poll());
+        }
+    }
+
+    private void place(Entry<T> entry) {
+        long delta = entry.deadlineTick - currentTick;
+        // anything beyond the top level waits in its last window and is placed again when it cascades
+        long tick = delta >= horizon ? currentTick + horizon - 1 : entry.deadlineTick;
+        delta = Math.max(tick - currentTick, 0);
+
+        int level = 0;
+        while (level < levels - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = (int) ((tick >> (SLOT_BITS * level)) & MASK);
+        ArrayDeque<Entry<T>> bucket = buckets[level][slot];
+        if (bucket == null) {
+            bucket = new ArrayDeque<>();
+            buckets[level][slot] = bucket;
+        }
+        bucket.add(entry);
+    }
+
+    private record Entry<T>(T item, long deadlineTick) {
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.thousif.trading.service.id;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Snowflake-style ids: [41 bits millis since EPOCH][10 bits node][12 bits sequence].
+// Monotonic per node without locks; a sequence overflow or a clock step back borrows from the next millisecond.
+@Component
+@Slf4j
+public class IdGenerator {
+
+    private static final long EPOCH = 1735689600000L; // 2025-01-01T00:00:00Z
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    // Crockford base32, digits sort before letters so fixed-width strings keep numeric order
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int ENCODED_LENGTH = 13;
+
+    @Value("${trading.ids.node-id:0}")
+    private long nodeId;
+
+    // (millis since EPOCH << SEQUENCE_BITS) | sequence of the last id handed out
+    private final AtomicLong state = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalStateException("trading.ids.node-id must be between 0 and " + MAX_NODE_ID);
+        }
+        log.info("Id generator using node id {}", nodeId);
+    }
+
+    public long next() {
+        while (true) {
+            long last = state.get();
+            long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+            // last + 1 carries into the timestamp bits once the sequence is exhausted
+            long next = Math.max(now, last + 1);
+            if (state.compareAndSet(last, next)) {
+                long millis = next >>> SEQUENCE_BITS;
+                return (millis << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    public String nextOrderId() {
+        return "ORD-" + encode(next());
+    }
+
+    public String nextTransactionId() {
+        return "TXN-" + encode(next());
+    }
+
+    public static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = ALPHABET[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    public static long decode(String encoded) {
+        long id = 0;
+        for (int i = 0; i < encoded.length(); i++) {
+            char c = encoded.charAt(i);
+            int value = c <= '9' ? c - '0' : indexOf(c);
+            if (value < 0) {
+                throw new IllegalArgumentException("Invalid id: " + encoded);
+            }
+            id = (id << 5) | value;
+        }
+        return id;
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 10; i < ALPHABET.length; i++) {
+            if (ALPHABET[i] == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
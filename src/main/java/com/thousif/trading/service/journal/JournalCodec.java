@@ -0,0 +1,147 @@
+package com.thousif.trading.service.journal;
+
+import com.thousif.trading.enums.OrderType;
+import com.thousif.trading.enums.TransactionType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Binary layout of a record body, framing (length + crc) is handled by OrderJournal
+final class JournalCodec {
+
+    private static final TransactionType[] SIDES = TransactionType.values();
+    private static final OrderType[] ORDER_TYPES = OrderType.values();
+
+    private JournalCodec() {
+    }
+
+    static void encode(JournalRecord record, ByteBuffer buffer) {
+        buffer.put((byte) record.getType().ordinal());
+        buffer.putLong(record.getSequence());
+        buffer.putLong(record.getTimestamp());
+
+        switch (record.getType()) {
+            case ACCEPT -> {
+                putString(buffer, record.getOrderId());
+                putString(buffer, record.getSymbol());
+                buffer.putLong(record.getUserId());
+                putString(buffer, record.getUsername());
+                buffer.putLong(record.getStockId());
+                buffer.put((byte) record.getTransactionType().ordinal());
+                buffer.put((byte) record.getOrderType().ordinal());
+                buffer.putInt(record.getQuantity());
+                buffer.putLong(record.getPrice());
+                buffer.putLong(record.getTriggerPrice());
+                putString(buffer, record.getValidity());
+                buffer.putLong(record.getGoodTillDate());
+                buffer.putInt(record.getDisclosedQuantity() != null ? record.getDisclosedQuantity() : -1);
+                putString(buffer, record.getNotes());
+            }
+            case TRIGGER -> {
+                putString(buffer, record.getOrderId());
+                putString(buffer, record.getSymbol());
+            }
+            case FILL -> {
+                putString(buffer, record.getSymbol());
+                putString(buffer, record.getBuyOrderId());
+                putString(buffer, record.getSellOrderId());
+                buffer.putLong(record.getPrice());
+                buffer.putInt(record.getQuantity());
+            }
+            case CANCEL -> {
+                putString(buffer, record.getOrderId());
+                putString(buffer, record.getSymbol());
+                buffer.putInt(record.getQuantity());
+            }
+            case REJECT -> {
+                putString(buffer, record.getOrderId());
+                putString(buffer, record.getSymbol());
+                buffer.putInt(record.getQuantity());
+                putString(buffer, record.getReason());
+            }
+            case AMEND -> {
+                putString(buffer, record.getOrderId());
+                putString(buffer, record.getSymbol());
+                buffer.putInt(record.getQuantity());
+                buffer.putLong(record.getPrice());
+            }
+        }
+    }
+
+    static JournalRecord decode(ByteBuffer buffer) {
+        JournalRecord record = new JournalRecord();
+        record.setType(JournalRecordType.fromCode(buffer.get()));
+        record.setSequence(buffer.getLong());
+        record.setTimestamp(buffer.getLong());
+
+        switch (record.getType()) {
+            case ACCEPT -> {
+                record.setOrderId(getString(buffer));
+                record.setSymbol(getString(buffer));
+                record.setUserId(buffer.getLong());
+                record.setUsername(getString(buffer));
+                record.setStockId(buffer.getLong());
+                record.setTransactionType(SIDES[buffer.get()]);
+                record.setOrderType(ORDER_TYPES[buffer.get()]);
+                record.setQuantity(buffer.getInt());
+                record.setPrice(buffer.getLong());
+                record.setTriggerPrice(buffer.getLong());
+                record.setValidity(getString(buffer));
+                record.setGoodTillDate(buffer.getLong());
+                int disclosed = buffer.getInt();
+                record.setDisclosedQuantity(disclosed >= 0 ? disclosed : null);
+                record.setNotes(getString(buffer));
+            }
+            case TRIGGER -> {
+                record.setOrderId(getString(buffer));
+                record.setSymbol(getString(buffer));
+            }
+            case FILL -> {
+                record.setSymbol(getString(buffer));
+                record.setBuyOrderId(getString(buffer));
+                record.setSellOrderId(getString(buffer));
+                record.setPrice(buffer.getLong());
+                record.setQuantity(buffer.getInt());
+            }
+            case CANCEL -> {
+                record.setOrderId(getString(buffer));
+                record.setSymbol(getString(buffer));
+                record.setQuantity(buffer.getInt());
+            }
+            case REJECT -> {
+                record.setOrderId(getString(buffer));
+                record.setSymbol(getString(buffer));
+                record.setQuantity(buffer.getInt());
+                record.setReason(getString(buffer));
+            }
+            case AMEND -> {
+                record.setOrderId(getString(buffer));
+                record.setSymbol(getString(buffer));
+                record.setQuantity(buffer.getInt());
+                record.setPrice(buffer.getLong());
+            }
+        }
+        return record;
+    }
+
+    private static void putString(ByteBuffer buffer, String value) {
+        if (value == null) {
+            buffer.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+}
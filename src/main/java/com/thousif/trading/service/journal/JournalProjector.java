@@ -0,0 +1,261 @@
+package com.thousif.trading.service.journal;
+
+import com.thousif.trading.entity.JournalCheckpoint;
+import com.thousif.trading.entity.JournalDeadLetter;
+import com.thousif.trading.repository.JournalCheckpointRepository;
+import com.thousif.trading.repository.JournalDeadLetterRepository;
+import com.thousif.trading.service.trading.TradeSettlementService;
+import com.thousif.trading.service.trading.TransactionWriter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Single writer that applies journal records to MySQL behind the acknowledge path.
+// The last applied sequence is stored in the same transaction, so a restart resumes exactly once.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class JournalProjector implements Runnable {
+
+    private static final String CHECKPOINT_NAME = "order-projector";
+    private static final long RETRY_INITIAL_MILLIS = 100;
+    private static final long RETRY_MAX_MILLIS = 5000;
+    private static final int POISON_ATTEMPTS = 3;
+
+    private final TradeSettlementService settlementService;
+    private final JournalCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionWriter transactionWriter;
+    private final JournalDeadLetterRepository deadLetterRepository;
+
+    @Value("${trading.journal.projector-batch-size:256}")
+    private int batchSize;
+
+    // records enqueued together, e.g. a basket of orders, are never split across transactions
+    private final BlockingQueue<List<JournalRecord>> queue = new LinkedBlockingQueue<>();
+    private final Object progress = new Object();
+    private volatile long appliedSequence;
+    private volatile long enqueuedSequence;
+    private volatile boolean running = true;
+    private Thread worker;
+    // consecutive non-transient failures of the record currently failing on its own
+    private long failingSequence;
+    private int failures;
+
+    @PostConstruct
+    public void start() {
+        appliedSequence = checkpointRepository.findById(CHECKPOINT_NAME)
+                .map(JournalCheckpoint::getSequence)
+                .orElse(0L);
+        enqueuedSequence = appliedSequence;
+
+        worker = new Thread(this, "journal-projector");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public void enqueue(JournalRecord record) {
+        enqueueAll(List.of(record));
+    }
+
+    public void enqueueAll(List<JournalRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        queue.add(records);
+        enqueuedSequence = records.get(records.size() - 1).getSequence();
+    }
+
+    public long getAppliedSequence() {
+        return appliedSequence;
+    }
+
+    // the journal must be replayed from here on startup, the transaction writer can trail the projector
+    public long getReplaySequence() {
+        return Math.min(appliedSequence, transactionWriter.getWrittenSequence());
+    }
+
+    public long getBacklog() {
+        return enqueuedSequence - appliedSequence;
+    }
+
+    // lets read paths that need a freshly accepted order wait for it to reach the database
+    public boolean awaitCaughtUp(long timeoutMillis) {
+        long target = enqueuedSequence;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (progress) {
+            while (appliedSequence < target) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    progress.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void run() {
+        List<JournalRecord> batch = new ArrayList<>(batchSize);
+        long backoff = RETRY_INITIAL_MILLIS;
+        while (running || !queue.isEmpty() || !batch.isEmpty()) {
+            try {
+                if (batch.isEmpty()) {
+                    List<JournalRecord> group = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (group == null) {
+                        continue;
+                    }
+                    batch.addAll(group);
+                    while (batch.size() < batchSize && (group = queue.poll()) != null) {
+                        batch.addAll(group);
+                    }
+                }
+                applyBatch(batch);
+                batch.clear();
+                backoff = RETRY_INITIAL_MILLIS;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // the batch is kept and retried, the checkpoint has not moved past what failed
+                log.error("Projecting journal records up to {} failed, retrying in {} ms",
+                        batch.get(batch.size() - 1).getSequence(), backoff, e);
+                if (!running) {
+                    // replayed from the checkpoint on the next start
+                    return;
+                }
+                try {
+                    TimeUnit.MILLISECONDS.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoff = Math.min(backoff * 2, RETRY_MAX_MILLIS);
+            }
+        }
+    }
+
+    private void applyBatch(List<JournalRecord> batch) {
+        long last = batch.get(batch.size() - 1).getSequence();
+        if (last > appliedSequence) {
+            project(batch, last);
+        }
+        // fills are written behind the commit, records replayed only for the writer end up here directly
+        transactionWriter.enqueue(batch);
+    }
+
+    // Transient failures (deadlocks, lock timeouts, a database that is down) propagate and the batch is
+    // retried as a whole. Anything else is narrowed down by applying the records one by one.
+    private void project(List<JournalRecord> batch, long last) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                settlementService.applyAll(batch.stream()
+                        .filter(record -> record.getSequence() > appliedSequence)
+                        .toList());
+                saveCheckpoint(last);
+            });
+            markApplied(last);
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                throw e;
+            }
+            log.warn("Journal batch up to {} failed, applying records one by one", last, e);
+            batch.forEach(this::applySingle);
+        }
+    }
+
+    private void applySingle(JournalRecord record) {
+        if (record.getSequence() <= appliedSequence) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                settlementService.applyAll(List.of(record));
+                saveCheckpoint(record.getSequence());
+            });
+        } catch (RuntimeException e) {
+            if (isTransient(e) || recordFailure(record) < POISON_ATTEMPTS) {
+                throw e;
+            }
+            // failed on its own every time, it must not block everything behind it
+            log.error("Dead-lettering journal record {} ({}) for order {} after {} attempts",
+                    record.getSequence(), record.getType(), record.getOrderId(), POISON_ATTEMPTS, e);
+            transactionTemplate.executeWithoutResult(status -> {
+                deadLetterRepository.save(JournalDeadLetter.builder()
+                        .sequence(record.getSequence())
+                        .recordType(record.getType().name())
+                        .orderId(record.getOrderId())
+                        .symbol(record.getSymbol())
+                        .error(StringUtils.truncate(String.valueOf(e), 1000))
+                        .createdAt(LocalDateTime.now())
+                        .build());
+                saveCheckpoint(record.getSequence());
+            });
+        }
+        markApplied(record.getSequence());
+    }
+
+    private int recordFailure(JournalRecord record) {
+        if (failingSequence != record.getSequence()) {
+            failingSequence = record.getSequence();
+            failures = 0;
+        }
+        return ++failures;
+    }
+
+    static boolean isTransient(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TransientDataAccessException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof CannotCreateTransactionException
+                    || cause instanceof SQLTransientException
+                    || cause instanceof SQLRecoverableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void saveCheckpoint(long sequence) {
+        checkpointRepository.save(new JournalCheckpoint(CHECKPOINT_NAME, sequence));
+    }
+
+    private void markApplied(long sequence) {
+        synchronized (progress) {
+            appliedSequence = sequence;
+            progress.notifyAll();
+        }
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.thousif.trading.service.journal;
+
+import com.thousif.trading.entity.Order;
+import com.thousif.trading.enums.OrderType;
+import com.thousif.trading.enums.TransactionType;
+import com.thousif.trading.util.PriceScale;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Flat journal entry, each type only uses the fields it needs. Prices are PriceScale ticks, 0 when absent.
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalRecord {
+
+    private JournalRecordType type;
+    private long sequence;
+    private long timestamp;
+
+    private String orderId;
+    private String symbol;
+
+    // ACCEPT
+    private Long userId;
+    private String username;
+    private Long stockId;
+    private TransactionType transactionType;
+    private OrderType orderType;
+    private String validity;
+    // GTD expiry date as an epoch day, 0 when absent
+    private long goodTillDate;
+    private Integer disclosedQuantity;
+    private long triggerPrice;
+    private String notes;
+
+    // ACCEPT: order quantity, FILL: traded quantity, CANCEL / REJECT: released remainder, AMEND: new remainder
+    private int quantity;
+    // ACCEPT: limit price, FILL: traded price, AMEND: new limit price or 0 when unchanged
+    private long price;
+
+    // FILL, either side is null for executions against the market price
+    private String buyOrderId;
+    private String sellOrderId;
+
+    // REJECT
+    private String reason;
+
+    public static JournalRecord accept(Order order) {
+        return JournalRecord.builder()
+                .type(JournalRecordType.ACCEPT)
+                .orderId(order.getOrderId())
+                .symbol(order.getStock().getSymbol())
+                .userId(order.getUser().getId())
+                .username(order.getUser().getUsername())
+                .stockId(order.getStock().getId())
+                .transactionType(order.getTransactionType())
+                .orderType(order.getOrderType())
+                .quantity(order.getQuantity())
+                .price(order.getPrice() != null ? PriceScale.toTicks(order.getPrice()) : 0L)
+                .triggerPrice(order.getTriggerPrice() != null ? PriceScale.toTicks(order.getTriggerPrice()) : 0L)
+                .validity(order.getValidity())
+                .goodTillDate(order.getGoodTillDate() != null ? order.getGoodTillDate().toEpochDay() : 0L)
+                .disclosedQuantity(order.getDisclosedQuantity())
+                .notes(order.getNotes())
+                .build();
+    }
+
+    public static JournalRecord trigger(String orderId, String symbol) {
+        return JournalRecord.builder()
+                .type(JournalRecordType.TRIGGER)
+                .orderId(orderId)
+                .symbol(symbol)
+                .build();
+    }
+
+    public static JournalRecord fill(String symbol, String buyOrderId, String sellOrderId, long price, int quantity) {
+        return JournalRecord.builder()
+                .type(JournalRecordType.FILL)
+                .symbol(symbol)
+                .buyOrderId(buyOrderId)
+                .sellOrderId(sellOrderId)
+                .price(price)
+                .quantity(quantity)
+                .build();
+    }
+
+    public static JournalRecord cancel(String orderId, String symbol, int remainingQuantity) {
+        return JournalRecord.builder()
+                .type(JournalRecordType.CANCEL)
+                .orderId(orderId)
+                .symbol(symbol)
+                .quantity(remainingQuantity)
+                .build();
+    }
+
+    public static JournalRecord amend(String orderId, String symbol, int remainingQuantity, long price) {
+        return JournalRecord.builder()
+                .type(JournalRecordType.AMEND)
+                .orderId(orderId)
+                .symbol(symbol)
+                .quantity(remainingQuantity)
+                .price(price)
+                .build();
+    }
+
+    public static JournalRecord reject(String orderId, String symbol, int remainingQuantity, String reason) {
+        return JournalRecord.builder()
+                .type(JournalRecordType.REJECT)
+                .orderId(orderId)
+                .symbol(symbol)
+                .quantity(remainingQuantity)
+                .reason(reason != null && reason.length() > 255 ? reason.substring(0, 255) : reason)
+                .build();
+    }
+
+    // margin an ACCEPT blocks per unit of quantity: resting buys at the price they can execute at
+    public long marginPerUnit() {
+        if (transactionType != TransactionType.BUY) {
+            return 0;
+        }
+        return switch (orderType) {
+            case MARKET -> 0;
+            // raised to the protection price by an amend when it triggers
+            case SL_M -> price > 0 ? price : triggerPrice;
+            default -> price;
+        };
+    }
+
+}
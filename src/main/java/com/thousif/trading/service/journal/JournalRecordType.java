@@ -0,0 +1,16 @@
+package com.thousif.trading.service.journal;
+
+public enum JournalRecordType {
+    ACCEPT,     // Order accepted after pre-trade checks
+    TRIGGER,    // Stop order crossed its trigger price
+    FILL,       // Execution against the book or the market price
+    CANCEL,     // Unfilled remainder cancelled
+    REJECT,     // Order failed after acceptance
+    AMEND;      // Price or remaining quantity of an open order changed
+
+    private static final JournalRecordType[] VALUES = values();
+
+    public static JournalRecordType fromCode(int code) {
+        return VALUES[code];
+    }
+}
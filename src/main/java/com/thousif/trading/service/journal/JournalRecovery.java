@@ -0,0 +1,157 @@
+package com.thousif.trading.service.journal;
+
+import com.thousif.trading.entity.Order;
+import com.thousif.trading.enums.OrderStatus;
+import com.thousif.trading.enums.OrderType;
+import com.thousif.trading.repository.OrderRepository;
+import com.thousif.trading.service.expiry.OrderExpiryService;
+import com.thousif.trading.service.ledger.AccountLedger;
+import com.thousif.trading.service.matching.MatchingEngine;
+import com.thousif.trading.service.matching.OrderHandleIndex;
+import com.thousif.trading.service.matching.RestingOrder;
+import com.thousif.trading.service.matching.StopTriggerEngine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+// Rebuilds the in-memory books and stop index on startup from the latest snapshot plus the
+// journal written after it, so restart time is bounded by the snapshot interval.
+// Runs as a lifecycle phase ahead of the embedded web server, no order request is served before it.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class JournalRecovery implements SmartLifecycle {
+
+    private final OrderJournal orderJournal;
+    private final JournalSnapshotter snapshotter;
+    private final MatchingEngine matchingEngine;
+    private final StopTriggerEngine stopTriggerEngine;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final JournalProjector journalProjector;
+    private final AccountLedger accountLedger;
+    private final OrderExpiryService orderExpiryService;
+    private final OrderHandleIndex orderHandleIndex;
+
+    private static final long PROJECTOR_CATCH_UP_MILLIS = 60_000;
+    // the web server starts at DEFAULT_PHASE - 2048, scheduled jobs only once the context is refreshed
+    private static final int PHASE = SmartLifecycle.DEFAULT_PHASE - 4096;
+
+    private volatile boolean running;
+
+    @Override
+    public void start() {
+        recover();
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    public void recover() {
+        long started = System.currentTimeMillis();
+
+        JournalState state = snapshotter.loadLatest();
+        if (state == null && orderJournal.isEmpty()) {
+            // first start after upgrading, seed the base snapshot from MySQL once
+            state = transactionTemplate.execute(status -> loadFromDatabase());
+            snapshotter.write(state);
+        } else if (state == null) {
+            state = new JournalState();
+        }
+        orderJournal.advanceTo(state.getSequence());
+        orderJournal.replay(state.getSequence(), state::apply);
+
+        // ledger accounts load from MySQL, which must hold everything journaled before this start
+        if (!journalProjector.awaitCaughtUp(PROJECTOR_CATCH_UP_MILLIS)) {
+            log.warn("Journal projector still {} record(s) behind, account ledger may load stale balances",
+                    journalProjector.getBacklog());
+        }
+
+        int resting = 0;
+        int stops = 0;
+        List<JournalState.OpenOrder> unexecuted = new ArrayList<>();
+        for (JournalState.OpenOrder order : state.getOpenOrders()) {
+            JournalRecord accept = order.getAccept();
+            accountLedger.restore(accept, order.getRemaining());
+            orderHandleIndex.restore(accept, order.getRemaining(), order.isTriggered());
+            boolean executesAsMarket = accept.getOrderType() == OrderType.MARKET
+                    || (accept.getOrderType() == OrderType.SL_M && order.isTriggered());
+            // an IOC remainder is cancelled right after matching, a crash in between must not rest it
+            boolean immediateOrCancel = "IOC".equals(accept.getValidity()) && order.isTriggered();
+            if (executesAsMarket || immediateOrCancel) {
+                unexecuted.add(order);
+            } else if (order.isTriggered()) {
+                matchingEngine.restore(new RestingOrder(
+                        accept.getOrderId(), accept.getSymbol(), accept.getUsername(),
+                        accept.getTransactionType(), accept.getOrderType(),
+                        accept.getPrice(), accept.getQuantity(), order.getRemaining(),
+                        accept.getDisclosedQuantity() != null ? accept.getDisclosedQuantity() : 0));
+                orderExpiryService.schedule(accept);
+                resting++;
+            } else {
+                stopTriggerEngine.register(accept.getSymbol(), accept.getOrderId(),
+                        accept.getTransactionType(), accept.getTriggerPrice());
+                orderExpiryService.schedule(accept);
+                stops++;
+            }
+        }
+
+        // market and IOC executions interrupted by the shutdown are not retried at a stale price
+        for (JournalState.OpenOrder order : unexecuted) {
+            JournalRecord accept = order.getAccept();
+            orderJournal.append(JournalRecord.reject(accept.getOrderId(), accept.getSymbol(),
+                    order.getRemaining(), "Not executed before restart"));
+        }
+
+        snapshotter.resume(state);
+        log.info("Recovered {} resting order(s) and {} stop order(s) up to sequence {} in {} ms, rejected {}",
+                resting, stops, orderJournal.getLastSequence(), System.currentTimeMillis() - started,
+                unexecuted.size());
+    }
+
+    private JournalState loadFromDatabase() {
+        JournalState state = new JournalState(orderJournal.getLastSequence());
+
+        List<Order> open = orderRepository.findRestingOrders(
+                List.of(OrderType.LIMIT, OrderType.SL, OrderType.SL_M),
+                List.of(OrderStatus.OPEN, OrderStatus.PARTIAL));
+        for (Order order : open) {
+            int executed = order.getExecutedQuantity() == null ? 0 : order.getExecutedQuantity();
+            int remaining = order.getQuantity() - executed;
+            if (remaining <= 0) {
+                continue;
+            }
+            // a triggered SL that never filled is indistinguishable from an untriggered one here,
+            // so it waits for the next crossing tick again
+            boolean triggered = order.getOrderType() == OrderType.LIMIT
+                    || (order.getOrderType() == OrderType.SL && executed > 0);
+            JournalRecord accept = JournalRecord.accept(order);
+            // DAY orders expire relative to when they were placed
+            accept.setTimestamp(order.getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            state.addOpenOrder(accept, remaining, triggered);
+        }
+
+        log.info("Seeded base snapshot from database with {} open order(s)", state.getOpenOrders().size());
+        return state;
+    }
+
+}
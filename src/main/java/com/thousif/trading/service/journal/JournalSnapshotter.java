@@ -0,0 +1,175 @@
+package com.thousif.trading.service.journal;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+// Periodically folds the journal into a binary snapshot of JournalState and drops segments
+// that are covered by both the snapshot and the MySQL projection.
+// File layout: [int magic][int version][state][int crc32c of everything before it]
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class JournalSnapshotter {
+
+    private static final int MAGIC = 0x534E4150;
+    // version 1 also carried per-user margin and positions, it is still read
+    private static final int VERSION = 2;
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private final OrderJournal orderJournal;
+    private final JournalProjector projector;
+
+    @Value("${trading.journal.snapshot-dir:data/snapshots}")
+    private String directory;
+
+    @Value("${trading.journal.snapshots-retained:2}")
+    private int retained;
+
+    // owned by the scheduler thread once recovery hands it over
+    private JournalState state;
+    private long lastSnapshotSequence = -1;
+
+    public synchronized JournalState loadLatest() {
+        List<Path> snapshots = listSnapshots();
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path path = snapshots.get(i);
+            try {
+                JournalState loaded = read(path);
+                lastSnapshotSequence = loaded.getSequence();
+                log.info("Loaded snapshot {} at sequence {}", path.getFileName(), loaded.getSequence());
+                return loaded;
+            } catch (IOException | RuntimeException e) {
+                log.warn("Skipping unreadable snapshot {}: {}", path, e.getMessage());
+            }
+        }
+        return null;
+    }
+
+    // called by recovery with the state the books were restored from
+    public synchronized void resume(JournalState recovered) {
+        this.state = recovered;
+    }
+
+    @Scheduled(fixedDelayString = "${trading.journal.snapshot-interval-ms:60000}",
+            initialDelayString = "${trading.journal.snapshot-interval-ms:60000}")
+    public synchronized void snapshot() {
+        if (state == null) {
+            return;
+        }
+
+        long started = System.currentTimeMillis();
+        orderJournal.replay(state.getSequence(), state::apply);
+        if (state.getSequence() != lastSnapshotSequence) {
+            write(state);
+            log.info("Wrote snapshot at sequence {} with {} open order(s) in {} ms",
+                    state.getSequence(), state.getOpenOrders().size(), System.currentTimeMillis() - started);
+        }
+
+        // the projector and transaction writer may still need records the snapshot already covers
+        long compactable = Math.min(lastSnapshotSequence, projector.getReplaySequence());
+        int deleted = orderJournal.deleteSegmentsBefore(compactable);
+        if (deleted > 0) {
+            log.info("Compacted {} journal segment(s) up to sequence {}", deleted, compactable);
+        }
+    }
+
+    public synchronized void write(JournalState snapshot) {
+        Path dir = Paths.get(directory);
+        Path target = dir.resolve(String.format("%020d%s", snapshot.getSequence(), SNAPSHOT_SUFFIX));
+        Path temp = dir.resolve(target.getFileName() + ".tmp");
+
+        try {
+            Files.createDirectories(dir);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                OutputStream file = new BufferedOutputStream(Channels.newOutputStream(channel));
+                CheckedOutputStream checked = new CheckedOutputStream(file, new CRC32C());
+                DataOutputStream out = new DataOutputStream(checked);
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                snapshot.writeTo(out);
+                out.flush();
+
+                int checksum = (int) checked.getChecksum().getValue();
+                DataOutputStream trailer = new DataOutputStream(file);
+                trailer.writeInt(checksum);
+                trailer.flush();
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write snapshot " + target, e);
+        }
+
+        lastSnapshotSequence = snapshot.getSequence();
+        pruneSnapshots();
+    }
+
+    private JournalState read(Path path) throws IOException {
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(path))) {
+            CheckedInputStream checked = new CheckedInputStream(file, new CRC32C());
+            DataInputStream in = new DataInputStream(checked);
+            int version = in.readInt() == MAGIC ? in.readInt() : -1;
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Not a version 1 to " + VERSION + " snapshot");
+            }
+            JournalState loaded = JournalState.readFrom(in, version);
+
+            int expected = (int) checked.getChecksum().getValue();
+            if (new DataInputStream(file).readInt() != expected) {
+                throw new IOException("Checksum mismatch");
+            }
+            return loaded;
+        }
+    }
+
+    private void pruneSnapshots() {
+        List<Path> snapshots = listSnapshots();
+        for (int i = 0; i < snapshots.size() - retained; i++) {
+            try {
+                Files.deleteIfExists(snapshots.get(i));
+            } catch (IOException e) {
+                log.warn("Failed to delete old snapshot {}: {}", snapshots.get(i), e.getMessage());
+            }
+        }
+    }
+
+    private List<Path> listSnapshots() {
+        Path dir = Paths.get(directory);
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SNAPSHOT_SUFFIX))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list snapshots in " + dir, e);
+        }
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.thousif.trading.service.journal;
+
+import com.thousif.trading.enums.OrderType;
+import lombok.Getter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+
+// Open orders as of a journal sequence, built by folding records. This is what a snapshot stores and
+// what recovery restores the books, stop index, handles and ledger reservations from. Balances and
+// holdings are not kept here, the ledger loads them from MySQL once the projector has caught up.
+public class JournalState {
+
+    @Getter
+    private long sequence;
+
+    // insertion order is time priority, triggered stops move to the back
+    private final LinkedHashMap<String, OpenOrder> openOrders = new LinkedHashMap<>();
+
+    public JournalState() {
+    }
+
+    public JournalState(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public void apply(JournalRecord record) {
+        if (record.getSequence() <= sequence) {
+            return;
+        }
+        sequence = record.getSequence();
+
+        switch (record.getType()) {
+            case ACCEPT -> openOrders.put(record.getOrderId(), new OpenOrder(record, record.getQuantity(),
+                    record.getOrderType() == OrderType.LIMIT));
+            case TRIGGER -> {
+                OpenOrder order = openOrders.remove(record.getOrderId());
+                if (order != null) {
+                    order.triggered = true;
+                    openOrders.put(record.getOrderId(), order);
+                }
+            }
+            case FILL -> {
+                fill(record.getBuyOrderId(), record.getQuantity());
+                fill(record.getSellOrderId(), record.getQuantity());
+            }
+            case AMEND -> amend(record);
+            case CANCEL, REJECT -> openOrders.remove(record.getOrderId());
+        }
+    }
+
+    public void addOpenOrder(JournalRecord accept, int remaining, boolean triggered) {
+        openOrders.put(accept.getOrderId(), new OpenOrder(accept, remaining, triggered));
+    }
+
+    public Collection<OpenOrder> getOpenOrders() {
+        return openOrders.values();
+    }
+
+    private void fill(String orderId, int quantity) {
+        if (orderId == null) {
+            return;
+        }
+        OpenOrder order = openOrders.get(orderId);
+        if (order == null) {
+            return;
+        }
+        order.remaining -= quantity;
+        if (order.remaining <= 0) {
+            openOrders.remove(orderId);
+        }
+    }
+
+    private void amend(JournalRecord record) {
+        OpenOrder order = openOrders.get(record.getOrderId());
+        if (order == null) {
+            return;
+        }
+        JournalRecord accept = order.accept;
+        boolean repriced = record.getPrice() > 0 && record.getPrice() != accept.getPrice();
+        accept.setQuantity(accept.getQuantity() - order.remaining + record.getQuantity());
+        if (repriced) {
+            accept.setPrice(record.getPrice());
+        }
+        // only a reduction at the same price keeps time priority
+        boolean requeued = repriced || record.getQuantity() > order.remaining;
+        order.remaining = record.getQuantity();
+        if (requeued) {
+            openOrders.remove(record.getOrderId());
+            openOrders.put(record.getOrderId(), order);
+        }
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(sequence);
+
+        ByteBuffer scratch = ByteBuffer.allocate(64 * 1024);
+        out.writeInt(openOrders.size());
+        for (OpenOrder order : openOrders.values()) {
+            scratch.clear();
+            JournalCodec.encode(order.accept, scratch);
+            out.writeInt(scratch.position());
+            out.write(scratch.array(), 0, scratch.position());
+            out.writeInt(order.remaining);
+            out.writeBoolean(order.triggered);
+        }
+    }
+
+    static JournalState readFrom(DataInputStream in, int version) throws IOException {
+        JournalState state = new JournalState(in.readLong());
+
+        int orders = in.readInt();
+        for (int i = 0; i < orders; i++) {
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            JournalRecord accept = JournalCodec.decode(ByteBuffer.wrap(body));
+            state.addOpenOrder(accept, in.readInt(), in.readBoolean());
+        }
+
+        if (version == 1) {
+            // per-user margin and positions, never restored from: margin follows from the open orders
+            int reservations = in.readInt();
+            in.skipNBytes(reservations * 2L * Long.BYTES);
+            int positions = in.readInt();
+            for (int i = 0; i < positions; i++) {
+                in.readLong();
+                in.readUTF();
+                in.readLong();
+            }
+        }
+        return state;
+    }
+
+    @Getter
+    public static final class OpenOrder {
+
+        private final JournalRecord accept;
+        private int remaining;
+        private boolean triggered;
+
+        private OpenOrder(JournalRecord accept, int remaining, boolean triggered) {
+            this.accept = accept;
+            this.remaining = remaining;
+            this.triggered = triggered;
+        }
+    }
+
+}
@@ -0,0 +1,277 @@
+package com.thousif.trading.service.journal;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import com.thousif.trading.service.ledger.AccountLedger;
+import com.thousif.trading.service.matching.OrderHandleIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+// Append-only write-ahead log of order events in memory-mapped segment files.
+// Each entry is [int length][int crc32c][body], a zero length marks the end of a segment.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class OrderJournal {
+
+    private static final int HEADER_SIZE = 8;
+    private static final String SEGMENT_SUFFIX = ".journal";
+
+    private final JournalProjector projector;
+    private final AccountLedger accountLedger;
+    private final OrderHandleIndex orderHandleIndex;
+
+    @Value("${trading.journal.dir:data/journal}")
+    private String directory;
+
+    @Value("${trading.journal.segment-size-mb:64}")
+    private int segmentSizeMb;
+
+    @Value("${trading.journal.fsync:true}")
+    private boolean fsync;
+
+    private final ByteBuffer scratch = ByteBuffer.allocate(64 * 1024);
+    private final CRC32C crc = new CRC32C();
+
+    private Path journalDir;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long lastSequence;
+
+    @PostConstruct
+    public void open() throws IOException {
+        journalDir = Paths.get(directory);
+        Files.createDirectories(journalDir);
+
+        List<Path> segments = listSegments();
+        if (segments.isEmpty()) {
+            openSegment(1);
+        } else {
+            Path last = segments.get(segments.size() - 1);
+            lastSequence = startSequence(last) - 1;
+            mapSegment(last);
+            recoverTail();
+        }
+
+        // anything written but not yet projected into MySQL before the last shutdown
+        long applied = projector.getAppliedSequence();
+        replay(projector.getReplaySequence(), projector::enqueue);
+        // a lost journal directory must not hand out sequences the projector already applied
+        advanceTo(applied);
+
+        log.info("Order journal opened at {}, last sequence {}, projected up to {}",
+                journalDir.toAbsolutePath(), lastSequence, applied);
+    }
+
+    public synchronized JournalRecord append(JournalRecord record) {
+        int start = write(record);
+        // in sequence order, before the projector can see the record
+        accountLedger.apply(record);
+        orderHandleIndex.apply(record);
+        if (fsync) {
+            segment.force(start, segment.position() - start);
+        }
+        projector.enqueue(record);
+        return record;
+    }
+
+    // appends the records contiguously with a single force, the projector applies them in one transaction
+    public synchronized List<JournalRecord> appendAll(List<JournalRecord> records) {
+        int start = -1;
+        MappedByteBuffer first = null;
+        for (JournalRecord record : records) {
+            int position = write(record);
+            if (first != segment) {
+                // rolling forces the previous segment, only the current one is still dirty
+                first = segment;
+                start = position;
+            }
+        }
+        accountLedger.applyAll(records);
+        records.forEach(orderHandleIndex::apply);
+        if (fsync && first != null) {
+            segment.force(start, segment.position() - start);
+        }
+        projector.enqueueAll(records);
+        return records;
+    }
+
+    private int write(JournalRecord record) {
+        record.setSequence(lastSequence + 1);
+        record.setTimestamp(System.currentTimeMillis());
+
+        scratch.clear();
+        JournalCodec.encode(record, scratch);
+        scratch.flip();
+        int length = scratch.remaining();
+
+        if (segment.remaining() < HEADER_SIZE + length) {
+            roll(record.getSequence());
+        }
+
+        crc.reset();
+        crc.update(scratch);
+        scratch.rewind();
+
+        int start = segment.position();
+        segment.putInt(length);
+        segment.putInt((int) crc.getValue());
+        segment.put(scratch);
+
+        lastSequence = record.getSequence();
+        return start;
+    }
+
+    public void replay(long afterSequence, Consumer<JournalRecord> consumer) {
+        List<Path> segments = listSegments();
+        for (int i = 0; i < segments.size(); i++) {
+            // skip whole segments that end before the requested position
+            if (i + 1 < segments.size() && startSequence(segments.get(i + 1)) <= afterSequence + 1) {
+                continue;
+            }
+            try (FileChannel readChannel = FileChannel.open(segments.get(i), StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = readChannel.map(FileChannel.MapMode.READ_ONLY, 0, readChannel.size());
+                JournalRecord record;
+                while ((record = next(buffer)) != null) {
+                    if (record.getSequence() > afterSequence) {
+                        consumer.accept(record);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to replay journal segment " + segments.get(i), e);
+            }
+        }
+    }
+
+    // deletes closed segments whose records all have a sequence at or below the given one
+    public synchronized int deleteSegmentsBefore(long sequence) {
+        List<Path> segments = listSegments();
+        int deleted = 0;
+        for (int i = 0; i + 1 < segments.size(); i++) {
+            if (startSequence(segments.get(i + 1)) > sequence + 1) {
+                break;
+            }
+            try {
+                Files.delete(segments.get(i));
+                deleted++;
+            } catch (IOException e) {
+                log.warn("Failed to delete journal segment {}: {}", segments.get(i), e.getMessage());
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    public synchronized void advanceTo(long sequence) {
+        if (sequence > lastSequence) {
+            log.warn("Journal sequence advanced from {} to {}", lastSequence, sequence);
+            lastSequence = sequence;
+        }
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    public boolean isEmpty() {
+        return getLastSequence() == 0;
+    }
+
+    private JournalRecord next(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_SIZE) {
+            return null;
+        }
+        int start = buffer.position();
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length <= 0 || length > buffer.remaining()) {
+            buffer.position(start);
+            return null;
+        }
+
+        ByteBuffer body = buffer.slice(buffer.position(), length);
+        CRC32C bodyCrc = new CRC32C();
+        bodyCrc.update(body.duplicate());
+        if ((int) bodyCrc.getValue() != checksum) {
+            // torn write from a crash, everything after it is garbage
+            buffer.position(start);
+            return null;
+        }
+
+        buffer.position(buffer.position() + length);
+        return JournalCodec.decode(body);
+    }
+
+    private void recoverTail() {
+        JournalRecord record;
+        while ((record = next(segment)) != null) {
+            lastSequence = record.getSequence();
+        }
+    }
+
+    private void roll(long nextSequence) {
+        if (segment.remaining() >= Integer.BYTES) {
+            segment.putInt(0);
+        }
+        segment.force();
+        try {
+            channel.close();
+            openSegment(nextSequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to roll journal segment", e);
+        }
+    }
+
+    private void openSegment(long startSequence) throws IOException {
+        mapSegment(journalDir.resolve(String.format("%020d%s", startSequence, SEGMENT_SUFFIX)));
+        log.debug("Opened journal segment starting at sequence {}", startSequence);
+    }
+
+    private void mapSegment(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.max(channel.size(), (long) segmentSizeMb * 1024 * 1024);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private List<Path> listSegments() {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list journal segments in " + journalDir, e);
+        }
+    }
+
+    private static long startSequence(Path segmentPath) {
+        String name = segmentPath.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    @PreDestroy
+    public synchronized void close() throws IOException {
+        if (segment != null) {
+            segment.force();
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+}
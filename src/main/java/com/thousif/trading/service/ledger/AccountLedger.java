@@ -0,0 +1,385 @@
+package com.thousif.trading.service.ledger;
+
+import com.thousif.trading.entity.Portfolio;
+import com.thousif.trading.entity.User;
+import com.thousif.trading.enums.TransactionType;
+import com.thousif.trading.exception.InsufficientFundsException;
+import com.thousif.trading.exception.OrderValidationException;
+import com.thousif.trading.exception.TradingPlatformException;
+import com.thousif.trading.repository.PortfolioRepository;
+import com.thousif.trading.repository.UserRepository;
+import com.thousif.trading.service.journal.JournalRecord;
+import com.thousif.trading.service.journal.JournalRecordType;
+import com.thousif.trading.util.PriceScale;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Authoritative balances, used margin and holdings per account, in PriceScale ticks.
+// Pre-trade checks reserve against it under the account's lock; every journal record is applied
+// as it is appended, and the journal projector persists the same changes to users/portfolios behind it.
+// An account is loaded from MySQL on first use, which is exact because every change to it since
+// startup goes through the journal and therefore through this ledger first.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class AccountLedger {
+
+    private final UserRepository userRepository;
+    private final PortfolioRepository portfolioRepository;
+
+    private final Map<Long, Account> accounts = new ConcurrentHashMap<>();
+    private final Map<String, Long> userIds = new ConcurrentHashMap<>();
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+
+    public Account account(String username) {
+        Long userId = userIds.get(username);
+        if (userId != null) {
+            return account(userId);
+        }
+        User user = userRepository.findByUsername(username)
+                .orElseThrow(() -> new TradingPlatformException("User not found:" + username));
+        userIds.put(username, user.getId());
+        return accounts.computeIfAbsent(user.getId(), id -> load(user));
+    }
+
+    public Account account(long userId) {
+        Account account = accounts.get(userId);
+        if (account != null) {
+            return account;
+        }
+        return accounts.computeIfAbsent(userId, id -> load(userRepository.findById(id)
+                .orElseThrow(() -> new TradingPlatformException("User not found: " + id))));
+    }
+
+    // checks the whole set against one view of the account and reserves it, or reserves nothing
+    public void reserve(Account account, List<Hold> holds) {
+        synchronized (account) {
+            long requiredMargin = 0;
+            Map<String, Long> sells = new HashMap<>();
+            for (Hold hold : holds) {
+                if (hold.buy()) {
+                    requiredMargin += hold.unitMargin() * hold.quantity();
+                } else {
+                    sells.merge(hold.symbol(), (long) hold.quantity(), Long::sum);
+                }
+            }
+
+            if (account.getFreeMargin() < requiredMargin) {
+                throw new InsufficientFundsException(
+                        String.format("Insufficient funds. Required: ₹%s, Available: ₹%s",
+                                PriceScale.fromTicks(requiredMargin), PriceScale.fromTicks(account.getFreeMargin())));
+            }
+            for (Map.Entry<String, Long> sell : sells.entrySet()) {
+                long available = account.holding(sell.getKey()).available();
+                if (available < sell.getValue()) {
+                    throw new OrderValidationException(
+                            String.format("Insufficient stocks to sell. Available: %d, Requested: %d",
+                                    available, sell.getValue()));
+                }
+            }
+
+            for (Hold hold : holds) {
+                hold(account, new Reservation(account.userId, hold.symbol(), hold.buy(), hold.unitMargin(),
+                        hold.quantity()), hold.orderId());
+            }
+        }
+    }
+
+    // resizes an open order's reservation, failing without changes if the account cannot cover it.
+    // Same arguments as the AMEND record: the new remainder and the new price, 0 when unchanged.
+    public void amend(Account account, String orderId, long price, int remaining) {
+        synchronized (account) {
+            Reservation reservation = reservations.get(orderId);
+            if (reservation == null) {
+                throw new OrderValidationException("Order is no longer open: " + orderId);
+            }
+            long unitMargin = reservation.amendedUnitMargin(price);
+            if (reservation.buy) {
+                long additional = unitMargin * remaining - reservation.unitMargin * reservation.remaining;
+                if (additional > account.getFreeMargin()) {
+                    throw new InsufficientFundsException(
+                            String.format("Insufficient funds. Required: ₹%s, Available: ₹%s",
+                                    PriceScale.fromTicks(additional), PriceScale.fromTicks(account.getFreeMargin())));
+                }
+            } else {
+                long additional = remaining - reservation.remaining;
+                long available = account.holding(reservation.symbol).available();
+                if (additional > available) {
+                    throw new OrderValidationException(
+                            String.format("Insufficient stocks to sell. Available: %d, Requested: %d",
+                                    available, additional));
+                }
+            }
+            resize(account, reservation, unitMargin, remaining);
+        }
+    }
+
+    // journal hook, called for every appended record in sequence order
+    public void apply(JournalRecord record) {
+        try {
+            switch (record.getType()) {
+                case ACCEPT -> {
+                    // already reserved by the pre-trade check unless the record came from elsewhere
+                    if (!reservations.containsKey(record.getOrderId())) {
+                        Account account = account(record.getUserId());
+                        synchronized (account) {
+                            hold(account, Reservation.of(record, record.getQuantity()), record.getOrderId());
+                        }
+                    }
+                }
+                case FILL -> {
+                    settle(record.getBuyOrderId(), record.getQuantity(), record.getPrice());
+                    settle(record.getSellOrderId(), record.getQuantity(), record.getPrice());
+                }
+                case CANCEL, REJECT -> release(record.getOrderId(), record.getQuantity());
+                case AMEND -> {
+                    // a no-op when the pre-trade amend already resized the reservation
+                    Reservation reservation = reservations.get(record.getOrderId());
+                    if (reservation != null) {
+                        Account account = account(reservation.userId);
+                        synchronized (account) {
+                            resize(account, reservation, reservation.amendedUnitMargin(record.getPrice()),
+                                    record.getQuantity());
+                        }
+                    }
+                }
+                case TRIGGER -> {
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to apply journal record {} ({}) to the account ledger",
+                    record.getSequence(), record.getType(), e);
+        }
+    }
+
+    // Journal hook for a group. Consecutive cancels and rejects are released per account under one lock,
+    // so pulling hundreds of quotes at once is a single ledger update.
+    public void applyAll(List<JournalRecord> records) {
+        Map<Long, List<JournalRecord>> releases = new LinkedHashMap<>();
+        for (JournalRecord record : records) {
+            boolean release = record.getType() == JournalRecordType.CANCEL
+                    || record.getType() == JournalRecordType.REJECT;
+            if (release) {
+                Reservation reservation = reservations.get(record.getOrderId());
+                if (reservation != null) {
+                    releases.computeIfAbsent(reservation.userId, id -> new ArrayList<>()).add(record);
+                }
+            } else {
+                releaseAll(releases);
+                apply(record);
+            }
+        }
+        releaseAll(releases);
+    }
+
+    private void releaseAll(Map<Long, List<JournalRecord>> releases) {
+        for (Map.Entry<Long, List<JournalRecord>> entry : releases.entrySet()) {
+            try {
+                Account account = account(entry.getKey());
+                synchronized (account) {
+                    for (JournalRecord record : entry.getValue()) {
+                        release(account, reservations.remove(record.getOrderId()), record.getQuantity());
+                    }
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to release {} order(s) in the account ledger", entry.getValue().size(), e);
+            }
+        }
+        releases.clear();
+    }
+
+    // re-registers an order that was open at startup; its margin is already in the loaded used margin
+    public void restore(JournalRecord accept, int remaining) {
+        Reservation reservation = Reservation.of(accept, remaining);
+        Account account = account(accept.getUserId());
+        synchronized (account) {
+            reservations.put(accept.getOrderId(), reservation);
+            if (!reservation.buy) {
+                account.holding(reservation.symbol).reserved += remaining;
+            }
+        }
+    }
+
+    // drops a reservation whose ACCEPT never made it into the journal
+    public void discard(String orderId) {
+        release(orderId, Integer.MAX_VALUE);
+    }
+
+    private void hold(Account account, Reservation reservation, String orderId) {
+        reservations.put(orderId, reservation);
+        if (reservation.buy) {
+            account.usedMargin += reservation.unitMargin * reservation.remaining;
+        } else {
+            account.holding(reservation.symbol).reserved += reservation.remaining;
+        }
+    }
+
+    private void resize(Account account, Reservation reservation, long unitMargin, int remaining) {
+        if (reservation.buy) {
+            account.usedMargin += unitMargin * remaining - reservation.unitMargin * reservation.remaining;
+        } else {
+            Holding holding = account.holding(reservation.symbol);
+            holding.reserved = Math.max(0, holding.reserved + remaining - reservation.remaining);
+        }
+        reservation.unitMargin = unitMargin;
+        reservation.remaining = remaining;
+    }
+
+    private void settle(String orderId, int quantity, long price) {
+        if (orderId == null) {
+            return;
+        }
+        Reservation reservation = reservations.get(orderId);
+        if (reservation == null) {
+            log.warn("Fill for order {} without a ledger reservation", orderId);
+            return;
+        }
+        Account account = account(reservation.userId);
+        synchronized (account) {
+            long value = price * quantity;
+            Holding holding = account.holding(reservation.symbol);
+            if (reservation.buy) {
+                account.usedMargin = Math.max(0, account.usedMargin - reservation.unitMargin * quantity);
+                account.balance -= value;
+                holding.quantity += quantity;
+            } else {
+                account.balance += value;
+                holding.quantity -= quantity;
+                holding.reserved = Math.max(0, holding.reserved - quantity);
+            }
+            reservation.remaining -= quantity;
+            if (reservation.remaining <= 0) {
+                reservations.remove(orderId);
+            }
+        }
+    }
+
+    private void release(String orderId, int quantity) {
+        Reservation reservation = reservations.remove(orderId);
+        if (reservation == null) {
+            return;
+        }
+        Account account = account(reservation.userId);
+        synchronized (account) {
+            release(account, reservation, quantity);
+        }
+    }
+
+    // caller holds the account's monitor
+    private void release(Account account, Reservation reservation, int quantity) {
+        if (reservation == null) {
+            return;
+        }
+        int released = Math.min(quantity, reservation.remaining);
+        if (reservation.buy) {
+            account.usedMargin = Math.max(0, account.usedMargin - reservation.unitMargin * released);
+        } else {
+            Holding holding = account.holding(reservation.symbol);
+            holding.reserved = Math.max(0, holding.reserved - released);
+        }
+    }
+
+    private Account load(User user) {
+        Account account = new Account(user.getId(), user.getUsername(),
+                PriceScale.toTicks(user.getAvailableBalance()), PriceScale.toTicks(user.getUsedMargin()));
+        for (Portfolio portfolio : portfolioRepository.findHoldings(user.getId())) {
+            account.holding(portfolio.getStock().getSymbol()).quantity = portfolio.getQuantity();
+        }
+        log.debug("Loaded account {} into the ledger", user.getUsername());
+        return account;
+    }
+
+    // what a pre-trade check wants to reserve for one order
+    public record Hold(String orderId, String symbol, boolean buy, long unitMargin, int quantity) {
+    }
+
+    public static final class Account {
+
+        private final long userId;
+        private final String username;
+        // guarded by the account's monitor
+        private long balance;
+        private long usedMargin;
+        private final Map<String, Holding> holdings = new HashMap<>();
+
+        private Account(long userId, String username, long balance, long usedMargin) {
+            this.userId = userId;
+            this.username = username;
+            this.balance = balance;
+            this.usedMargin = usedMargin;
+        }
+
+        public long getUserId() {
+            return userId;
+        }
+
+        public String getUsername() {
+            return username;
+        }
+
+        public synchronized long getFreeMargin() {
+            return balance - usedMargin;
+        }
+
+        public synchronized BigDecimal getAvailableBalance() {
+            return PriceScale.fromTicks(balance);
+        }
+
+        public synchronized BigDecimal getUsedMarginAmount() {
+            return PriceScale.fromTicks(usedMargin);
+        }
+
+        private Holding holding(String symbol) {
+            return holdings.computeIfAbsent(symbol, s -> new Holding());
+        }
+    }
+
+    private static final class Holding {
+
+        private long quantity;
+        // held by open sell orders
+        private long reserved;
+
+        private long available() {
+            return quantity - reserved;
+        }
+    }
+
+    private static final class Reservation {
+
+        private final long userId;
+        private final String symbol;
+        private final boolean buy;
+        private long unitMargin;
+        private int remaining;
+
+        private Reservation(long userId, String symbol, boolean buy, long unitMargin, int remaining) {
+            this.userId = userId;
+            this.symbol = symbol;
+            this.buy = buy;
+            this.unitMargin = unitMargin;
+            this.remaining = remaining;
+        }
+
+        // buys are margined at their limit price, a repriced buy at its new one
+        private long amendedUnitMargin(long price) {
+            return buy && price > 0 ? price : unitMargin;
+        }
+
+        private static Reservation of(JournalRecord accept, int remaining) {
+            return new Reservation(accept.getUserId(), accept.getSymbol(),
+                    accept.getTransactionType() == TransactionType.BUY,
+                    accept.marginPerUnit(), remaining);
+        }
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.thousif.trading.service.market;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Fixed-size ring of OHLCV bars for one symbol and timeframe, held in parallel primitive arrays.
+// A tick either updates the newest bar or opens the next one over the oldest, both O(1).
+// Not thread safe, callers serialise access per symbol.
+public class CandleSeries {
+
+    private final long periodMillis;
+    private final long offsetMillis;
+    private final long[] start;
+    private final long[] open;
+    private final long[] high;
+    private final long[] low;
+    private final long[] close;
+    private final long[] volume;
+    private int head = -1;
+    private int count;
+
+    // offset shifts bar boundaries from UTC to the exchange's local day
+    public CandleSeries(long periodMillis, long offsetMillis, int capacity) {
+        this.periodMillis = periodMillis;
+        this.offsetMillis = offsetMillis;
+        this.start = new long[capacity];
+        this.open = new long[capacity];
+        this.high = new long[capacity];
+        this.low = new long[capacity];
+        this.close = new long[capacity];
+        this.volume = new long[capacity];
+    }
+
+    // returns false for a tick older than the newest bar, which is dropped
+    public boolean update(long timestamp, long price, long tradedVolume) {
+        long bucket = Math.floorDiv(timestamp + offsetMillis, periodMillis) * periodMillis - offsetMillis;
+        if (count > 0 && bucket == start[head]) {
+            high[head] = Math.max(high[head], price);
+            low[head] = Math.min(low[head], price);
+            close[head] = price;
+            volume[head] += tradedVolume;
+            return true;
+        }
+        if (count > 0 && bucket < start[head]) {
+            return false;
+        }
+
+        head = (head + 1) % start.length;
+        count = Math.min(count + 1, start.length);
+        start[head] = bucket;
+        open[head] = price;
+        high[head] = price;
+        low[head] = price;
+        close[head] = price;
+        volume[head] = tradedVolume;
+        return true;
+    }
+
+    // oldest first, at most limit of the newest bars
+    public List<Candle> latest(int limit) {
+        int n = Math.min(limit, count);
+        List<Candle> candles = new ArrayList<>(n);
+        for (int i = n - 1; i >= 0; i--) {
+            candles.add(at(i));
+        }
+        return candles;
+    }
+
+    public Candle current() {
+        return count == 0 ? null : at(0);
+    }
+
+    // age 0 is the newest bar
+    private Candle at(int age) {
+        int i = Math.floorMod(head - age, start.length);
+        return new Candle(start[i], open[i], high[i], low[i], close[i], volume[i]);
+    }
+
+    // prices are in PriceScale ticks
+    public record Candle(long start, long open, long high, long low, long close, long volume) {
+    }
+
+}
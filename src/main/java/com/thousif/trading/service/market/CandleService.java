@@ -0,0 +1,119 @@
+package com.thousif.trading.service.market;
+
+import com.thousif.trading.dto.response.CandleResponse;
+import com.thousif.trading.exception.TradingPlatformException;
+import com.thousif.trading.util.PriceScale;
+import com.thousif.trading.websocket.MarketDataConflator;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Builds OHLCV bars for every timeframe from the price ticks, so candle history is served from memory
+// rather than fetched from the market data provider.
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class CandleService {
+
+    private final SimpMessagingTemplate messagingTemplate;
+
+    @Value("${trading.market-data.candles.capacity:500}")
+    private int capacity;
+
+    @Value("${trading.validity.zone:Asia/Kolkata}")
+    private String zoneId;
+
+    private final Map<String, SymbolCandles> symbols = new ConcurrentHashMap<>();
+    private long offsetMillis;
+
+    @PostConstruct
+    public void init() {
+        // daily bars start at local midnight
+        offsetMillis = ZoneId.of(zoneId).getRules().getOffset(Instant.now()).getTotalSeconds() * 1000L;
+    }
+
+    @EventListener
+    public void onPriceTick(PriceTickEvent tick) {
+        SymbolCandles candles = symbols.computeIfAbsent(tick.symbol(), s -> new SymbolCandles());
+        CandleSeries.Candle[] current = new CandleSeries.Candle[Timeframe.values().length];
+        synchronized (candles) {
+            // ticks carry the cumulative day volume, a bar gets what traded since the previous tick. The first
+            // tick seen for a symbol only sets the baseline, its total traded before any bar existed.
+            long traded;
+            if (candles.lastVolume < 0) {
+                traded = 0;
+            } else {
+                traded = tick.volume() >= candles.lastVolume ? tick.volume() - candles.lastVolume : tick.volume();
+            }
+            candles.lastVolume = tick.volume();
+            for (Timeframe timeframe : Timeframe.values()) {
+                CandleSeries series = candles.series[timeframe.ordinal()];
+                if (series.update(tick.timestamp(), tick.price(), traded)) {
+                    current[timeframe.ordinal()] = series.current();
+                }
+            }
+        }
+
+        Map<String, Object> headers = Map.of(MarketDataConflator.SYMBOL_HEADER, tick.symbol());
+        for (Timeframe timeframe : Timeframe.values()) {
+            CandleSeries.Candle candle = current[timeframe.ordinal()];
+            if (candle != null) {
+                messagingTemplate.convertAndSend("/topic/candles/" + tick.symbol() + "/" + timeframe.getLabel(),
+                        toResponse(tick.symbol(), timeframe, candle), headers);
+            }
+        }
+    }
+
+    public List<CandleResponse> getCandles(String symbol, String tf, int limit) {
+        Timeframe timeframe = Timeframe.fromLabel(tf);
+        if (limit < 1) {
+            throw new TradingPlatformException("Limit must be at least 1");
+        }
+        SymbolCandles candles = symbols.get(symbol);
+        if (candles == null) {
+            return List.of();
+        }
+        List<CandleSeries.Candle> bars;
+        synchronized (candles) {
+            bars = candles.series[timeframe.ordinal()].latest(limit);
+        }
+        return bars.stream().map(candle -> toResponse(symbol, timeframe, candle)).toList();
+    }
+
+    private CandleResponse toResponse(String symbol, Timeframe timeframe, CandleSeries.Candle candle) {
+        return CandleResponse.builder()
+                .symbol(symbol)
+                .timeframe(timeframe.getLabel())
+                .time(candle.start())
+                .open(PriceScale.fromTicks(candle.open()))
+                .high(PriceScale.fromTicks(candle.high()))
+                .low(PriceScale.fromTicks(candle.low()))
+                .close(PriceScale.fromTicks(candle.close()))
+                .volume(candle.volume())
+                .build();
+    }
+
+    private class SymbolCandles {
+
+        private final CandleSeries[] series = new CandleSeries[Timeframe.values().length];
+        // cumulative volume of the previous tick, -1 until the first one
+        private long lastVolume = -1;
+
+        private SymbolCandles() {
+            for (Timeframe timeframe : Timeframe.values()) {
+                series[timeframe.ordinal()] = new CandleSeries(timeframe.getMillis(), offsetMillis, capacity);
+            }
+        }
+    }
+
+}
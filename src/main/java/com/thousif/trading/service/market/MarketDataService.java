@@ -3,19 +3,29 @@ package com.thousif.trading.service.market;
 import com.thousif.trading.entity.Stock;
 import com.thousif.trading.service.cache.CacheService;
 import com.thousif.trading.service.trading.StockService;
+import com.thousif.trading.util.PriceScale;
+import com.thousif.trading.websocket.MarketDataConflator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 
 @RequiredArgsConstructor
 @Service
@@ -25,7 +35,12 @@ public class MarketDataService {
     private final StockService stockService;
     private final SimpMessagingTemplate messagingTemplate;
     private final CacheService cacheService;
+    private final ApplicationEventPublisher eventPublisher;
     private final Random random = new Random();
+    private final Map<String, SymbolFeed> feeds = new ConcurrentHashMap<>();
+
+    @Value("${trading.market-data.binary.enabled:true}")
+    private boolean binaryEnabled;
 
     //@Scheduled(fixedRate = 5000)
     public void broadcastMarketData(){
@@ -41,9 +56,19 @@ public class MarketDataService {
                 String cacheKey = "market-data:" + stock.getSymbol();
                 cacheService.cacheObject(cacheKey, priceUpdate, Duration.ofMinutes(1));
 
-                //Broadcast to WebSocket subscribers
-                messagingTemplate.convertAndSend("/topic/market-data", priceUpdate);
-                messagingTemplate.convertAndSend("/topic/stock/" + stock.getSymbol(), priceUpdate);
+                //Broadcast to WebSocket subscribers, conflated per session by symbol
+                Map<String, Object> headers = Map.of(MarketDataConflator.SYMBOL_HEADER, stock.getSymbol());
+                messagingTemplate.convertAndSend("/topic/market-data", priceUpdate, headers);
+                publishDelta(stock.getSymbol(), priceUpdate);
+                if (binaryEnabled) {
+                    broadcastBinary(stock, priceUpdate);
+                }
+
+                eventPublisher.publishEvent(new PriceTickEvent(
+                        stock.getSymbol(),
+                        PriceScale.toTicks((BigDecimal) priceUpdate.get("price")),
+                        (Long) priceUpdate.get("volume"),
+                        System.currentTimeMillis()));
 
                 log.debug("Broadcasted market data for: {}", stock.getSymbol());
             } catch (Exception e) {
@@ -53,6 +78,36 @@ public class MarketDataService {
 
     }
 
+    // /topic/stock/{symbol} only carries sequenced deltas, subscribers get the snapshot from getLatestMarketData
+    private void publishDelta(String symbol, Map<String, Object> priceUpdate) {
+        SymbolFeed feed = feeds.computeIfAbsent(symbol, SymbolFeed::new);
+        synchronized (feed) {
+            messagingTemplate.convertAndSend("/topic/stock/" + symbol, feed.advance(priceUpdate), Map.of(
+                    MarketDataConflator.SYMBOL_HEADER, symbol,
+                    MarketDataConflator.DELTA_HEADER, "true"));
+        }
+    }
+
+    // Opt-in fixed layout ticks on /topic/ticks, encoded once and shared by every subscriber
+    private void broadcastBinary(Stock stock, Map<String, Object> priceUpdate) {
+        byte[] tick = TickCodec.encode(
+                stock.getId().intValue(),
+                PriceScale.toTicks((BigDecimal) priceUpdate.get("price")),
+                PriceScale.toTicks((BigDecimal) priceUpdate.get("change")),
+                (Long) priceUpdate.get("volume"),
+                Instant.now());
+        messagingTemplate.send("/topic/ticks", binaryMessage(tick, stock.getSymbol()));
+        messagingTemplate.send("/topic/ticks/" + stock.getSymbol(), binaryMessage(tick, stock.getSymbol()));
+    }
+
+    private Message<byte[]> binaryMessage(byte[] tick, String symbol) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setContentType(TickCodec.CONTENT_TYPE);
+        accessor.setNativeHeader(MarketDataConflator.SYMBOL_HEADER, symbol);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(tick, accessor.getMessageHeaders());
+    }
+
     private Map<String, Object> generatePriceUpdate(Stock stock){
         BigDecimal currentPrice = stock.getCurrentPrice();
         if(currentPrice == null){
@@ -97,6 +152,19 @@ public class MarketDataService {
     }
 
     public Map<String, Object> getLatestMarketData(String symbol){
+        SymbolFeed feed = feeds.get(symbol);
+        if (feed != null) {
+            return feed.snapshot();
+        }
+
+        // nothing published for it on this node yet, deltas will start from seq 1
+        Map<String, Object> snapshot = new LinkedHashMap<>(findMarketData(symbol));
+        snapshot.put("type", "snapshot");
+        snapshot.put("seq", 0L);
+        return snapshot;
+    }
+
+    private Map<String, Object> findMarketData(String symbol){
         String cacheKey = "market-data:" + symbol;
         Object cacheData = cacheService.getCacheObject(cacheKey);
         if(cacheData instanceof Map){
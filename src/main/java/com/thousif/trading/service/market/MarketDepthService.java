@@ -0,0 +1,129 @@
+package com.thousif.trading.service.market;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thousif.trading.dto.response.DepthResponse;
+import com.thousif.trading.exception.TradingPlatformException;
+import com.thousif.trading.service.matching.BookLevel;
+import com.thousif.trading.service.matching.MatchingEngine;
+import com.thousif.trading.service.matching.OrderBook;
+import com.thousif.trading.util.PriceScale;
+import com.thousif.trading.websocket.MarketDataConflator;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Aggregated top-of-book depth per symbol. The price levels already keep their totals as orders come
+// and go, so a depth view is a copy of the first N levels; it is serialized once per book version and
+// the same bytes serve every REST poll and the /topic/depth push until the book changes again.
+// Requests are rounded up to one of a few depth sizes and only symbols with a book are served, so the
+// cache holds at most one entry per book and size however clients pick the parameters.
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class MarketDepthService {
+
+    private final MatchingEngine matchingEngine;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${trading.market-data.depth.max-levels:20}")
+    private int maxLevels;
+
+    @Value("${trading.market-data.depth.topic-levels:10}")
+    private int topicLevels;
+
+    private static final int[] DEPTH_SIZES = {5, 10, 20};
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<String, Long> publishedVersions = new ConcurrentHashMap<>();
+
+    public byte[] getDepth(String symbol, int levels) {
+        if (levels < 1) {
+            throw new TradingPlatformException("Depth levels must be at least 1");
+        }
+        int count = depthSize(levels);
+        Long version = matchingEngine.read(symbol, OrderBook::getVersion);
+        if (version == null) {
+            throw new TradingPlatformException("No order book for symbol: " + symbol);
+        }
+
+        String key = symbol + ":" + count;
+        Snapshot cached = snapshots.get(key);
+        if (cached != null && cached.version == version) {
+            return cached.json;
+        }
+
+        // copied under the book lock, serialized outside it
+        DepthResponse depth = matchingEngine.read(symbol, book -> toResponse(symbol, book.getVersion(),
+                book.depth(true, count), book.depth(false, count)));
+        Snapshot fresh = new Snapshot(depth.getVersion(), serialize(depth));
+        return snapshots.merge(key, fresh, (old, neu) -> neu.version >= old.version ? neu : old).json;
+    }
+
+    @Scheduled(fixedDelayString = "${trading.market-data.depth.publish-interval-ms:200}")
+    public void publishDepth() {
+        for (String symbol : matchingEngine.getSymbols()) {
+            try {
+                Long version = matchingEngine.read(symbol, OrderBook::getVersion);
+                if (version == null || version.equals(publishedVersions.get(symbol))) {
+                    continue;
+                }
+                SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+                accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+                accessor.setNativeHeader(MarketDataConflator.SYMBOL_HEADER, symbol);
+                accessor.setLeaveMutable(true);
+                messagingTemplate.send("/topic/depth/" + symbol,
+                        MessageBuilder.createMessage(getDepth(symbol, topicLevels), accessor.getMessageHeaders()));
+                publishedVersions.put(symbol, version);
+            } catch (Exception e) {
+                log.error("Error publishing depth for: {}", symbol, e);
+            }
+        }
+    }
+
+    // the smallest depth size covering the request, capped at the configured maximum
+    private int depthSize(int levels) {
+        for (int size : DEPTH_SIZES) {
+            if (levels <= size && size <= maxLevels) {
+                return size;
+            }
+        }
+        return maxLevels;
+    }
+
+    private DepthResponse toResponse(String symbol, long version, List<BookLevel> bids, List<BookLevel> asks) {
+        return DepthResponse.builder()
+                .symbol(symbol)
+                .version(version)
+                .bids(bids.stream().map(this::toLevel).toList())
+                .asks(asks.stream().map(this::toLevel).toList())
+                .build();
+    }
+
+    private DepthResponse.Level toLevel(BookLevel level) {
+        return new DepthResponse.Level(PriceScale.fromTicks(level.price()), level.quantity(), level.orders());
+    }
+
+    private byte[] serialize(DepthResponse depth) {
+        try {
+            return objectMapper.writeValueAsBytes(depth);
+        } catch (JsonProcessingException e) {
+            throw new TradingPlatformException("Failed to serialize depth for " + depth.getSymbol(), e);
+        }
+    }
+
+    private record Snapshot(long version, byte[] json) {
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.thousif.trading.service.market;
+
+// Published for every price update; price is in PriceScale ticks
+public record PriceTickEvent(
+        String symbol,
+        long price,
+        long volume,
+        long timestamp
+) {
+}
@@ -0,0 +1,45 @@
+package com.thousif.trading.service.market;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+// Sequenced state of one symbol's /topic/stock stream. Subscribers start from a snapshot and then apply
+// deltas carrying only the fields that changed; a delta whose prevSeq is not the last seq they applied
+// means they missed one and should resync.
+public class SymbolFeed {
+
+    private final String symbol;
+    private long seq;
+    private Map<String, Object> fields = Map.of();
+
+    public SymbolFeed(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> snapshot = new LinkedHashMap<>(fields);
+        snapshot.put("type", "snapshot");
+        snapshot.put("symbol", symbol);
+        snapshot.put("seq", seq);
+        return snapshot;
+    }
+
+    // callers publish the delta while holding the feed's lock, so deltas go out in sequence order
+    public synchronized Map<String, Object> advance(Map<String, Object> update) {
+        Map<String, Object> delta = new LinkedHashMap<>();
+        delta.put("type", "delta");
+        delta.put("symbol", symbol);
+        delta.put("prevSeq", seq);
+        delta.put("seq", ++seq);
+        update.forEach((field, value) -> {
+            if (!Objects.equals(fields.get(field), value)) {
+                delta.put(field, value);
+            }
+        });
+        fields = new HashMap<>(update);
+        return delta;
+    }
+
+}
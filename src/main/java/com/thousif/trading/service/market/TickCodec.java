@@ -0,0 +1,38 @@
+package com.thousif.trading.service.market;
+
+import org.springframework.util.MimeType;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+// Fixed 36 byte big-endian layout for price ticks sent to binary subscribers, in place of the JSON map:
+// int stock id, long price, long change (both in ticks, see PriceScale), long volume, long epoch nanos.
+public final class TickCodec {
+
+    public static final MimeType CONTENT_TYPE = new MimeType("application", "vnd.trading.tick");
+    public static final int LENGTH = Integer.BYTES + 4 * Long.BYTES;
+
+    private TickCodec() {
+    }
+
+    // one array per tick, the broker shares it between every session subscribed to it
+    public static byte[] encode(int stockId, long price, long change, long volume, Instant timestamp) {
+        byte[] frame = new byte[LENGTH];
+        ByteBuffer.wrap(frame)
+                .putInt(stockId)
+                .putLong(price)
+                .putLong(change)
+                .putLong(volume)
+                .putLong(timestamp.getEpochSecond() * 1_000_000_000L + timestamp.getNano());
+        return frame;
+    }
+
+    public static Tick decode(byte[] frame) {
+        ByteBuffer buffer = ByteBuffer.wrap(frame);
+        return new Tick(buffer.getInt(), buffer.getLong(), buffer.getLong(), buffer.getLong(), buffer.getLong());
+    }
+
+    public record Tick(int stockId, long price, long change, long volume, long epochNanos) {
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.thousif.trading.service.market;
+
+import com.thousif.trading.exception.TradingPlatformException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+@Getter
+@RequiredArgsConstructor
+public enum Timeframe {
+
+    S1("1s", 1_000L),
+    M1("1m", 60_000L),
+    M5("5m", 300_000L),
+    M15("15m", 900_000L),
+    D1("1d", 86_400_000L);
+
+    private final String label;
+    private final long millis;
+
+    public static Timeframe fromLabel(String label) {
+        for (Timeframe timeframe : values()) {
+            if (timeframe.label.equals(label)) {
+                return timeframe;
+            }
+        }
+        throw new TradingPlatformException("Unsupported timeframe: " + label + ", use 1s, 1m, 5m, 15m or 1d");
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.thousif.trading.service.market.ticks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// One symbol's ticks for one day as three memory-mapped column files of longs: time, price, volume.
+// Each file starts with an 8 byte row count that is written after the row itself, so rows below the
+// count are complete and never change again; readers slice them without copying.
+// Appends are serialised by the caller, reads may run concurrently with them.
+class TickColumns {
+
+    static final String[] COLUMNS = {"time", "price", "volume"};
+    private static final int HEADER_SIZE = Long.BYTES;
+
+    private final Path[] files = new Path[COLUMNS.length];
+    private final boolean writable;
+    private final MappedByteBuffer[] buffers = new MappedByteBuffer[COLUMNS.length];
+    private long capacity;
+    private volatile int rows;
+    private long lastTime = Long.MIN_VALUE;
+
+    private TickColumns(Path directory, String symbol, boolean writable) {
+        for (int c = 0; c < COLUMNS.length; c++) {
+            files[c] = directory.resolve(symbol + "." + COLUMNS[c]);
+        }
+        this.writable = writable;
+    }
+
+    static TickColumns openForAppend(Path directory, String symbol, int initialRows) throws IOException {
+        Files.createDirectories(directory);
+        TickColumns columns = new TickColumns(directory, symbol, true);
+        columns.map(Math.max(initialRows, columns.existingRows()));
+        columns.recover();
+        return columns;
+    }
+
+    // null when nothing was stored for the symbol that day
+    static TickColumns openForRead(Path directory, String symbol) throws IOException {
+        TickColumns columns = new TickColumns(directory, symbol, false);
+        for (Path file : columns.files) {
+            if (!Files.exists(file)) {
+                return null;
+            }
+        }
+        columns.map(columns.existingRows());
+        columns.recover();
+        return columns;
+    }
+
+    void append(long time, long price, long volume) {
+        if (rows == capacity) {
+            map(capacity * 2);
+        }
+        // the time column has to stay sorted for the binary search
+        long t = Math.max(time, lastTime);
+        int offset = HEADER_SIZE + rows * Long.BYTES;
+        buffers[0].putLong(offset, t);
+        buffers[1].putLong(offset, price);
+        buffers[2].putLong(offset, volume);
+        int count = rows + 1;
+        for (MappedByteBuffer buffer : buffers) {
+            buffer.putLong(0, count);
+        }
+        lastTime = t;
+        rows = count;
+    }
+
+    // rows with from <= time <= to
+    TickSlice slice(long from, long to) {
+        int count = rows;
+        MappedByteBuffer[] mapped = buffers.clone();
+        int lo = firstAtOrAfter(mapped[0], count, from);
+        int hi = to == Long.MAX_VALUE ? count : firstAtOrAfter(mapped[0], count, to + 1);
+        if (lo >= hi) {
+            return null;
+        }
+        return new TickSlice(column(mapped[0], lo, hi), column(mapped[1], lo, hi), column(mapped[2], lo, hi));
+    }
+
+    void force() {
+        for (MappedByteBuffer buffer : buffers) {
+            buffer.force();
+        }
+    }
+
+    private static LongBuffer column(ByteBuffer buffer, int lo, int hi) {
+        return buffer.slice(HEADER_SIZE + lo * Long.BYTES, (hi - lo) * Long.BYTES).asLongBuffer();
+    }
+
+    private static int firstAtOrAfter(ByteBuffer times, int count, long time) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times.getLong(HEADER_SIZE + mid * Long.BYTES) < time) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int existingRows() {
+        long size = Long.MAX_VALUE;
+        for (Path file : files) {
+            try {
+                size = Math.min(size, Files.exists(file) ? Files.size(file) : 0);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to size tick column " + file, e);
+            }
+        }
+        return (int) Math.max(0, (size - HEADER_SIZE) / Long.BYTES);
+    }
+
+    // a crash between columns leaves their counts apart, only rows every column has are kept
+    private void recover() {
+        long count = capacity;
+        for (MappedByteBuffer buffer : buffers) {
+            count = Math.min(count, buffer.getLong(0));
+        }
+        rows = (int) Math.max(0, count);
+        if (rows > 0) {
+            lastTime = buffers[0].getLong(HEADER_SIZE + (rows - 1) * Long.BYTES);
+        }
+    }
+
+    // a larger mapping of the same file, slices of the previous one stay valid for readers holding them
+    private void map(long rowCapacity) {
+        for (int c = 0; c < COLUMNS.length; c++) {
+            try (FileChannel channel = writable
+                    ? FileChannel.open(files[c], StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                    : FileChannel.open(files[c], StandardOpenOption.READ)) {
+                buffers[c] = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                        0, HEADER_SIZE + rowCapacity * Long.BYTES);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to map tick column " + files[c], e);
+            }
+        }
+        capacity = rowCapacity;
+    }
+
+}
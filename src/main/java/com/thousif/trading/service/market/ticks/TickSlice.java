@@ -0,0 +1,17 @@
+package com.thousif.trading.service.market.ticks;
+
+import java.nio.LongBuffer;
+
+// Views straight onto the mapped column files, one row per index; times are epoch millis and
+// prices are in PriceScale ticks
+public record TickSlice(
+        LongBuffer times,
+        LongBuffer prices,
+        LongBuffer volumes
+) {
+
+    public int size() {
+        return times.remaining();
+    }
+
+}
@@ -0,0 +1,237 @@
+package com.thousif.trading.service.market.ticks;
+
+import com.thousif.trading.dto.response.TickHistoryResponse;
+import com.thousif.trading.exception.TradingPlatformException;
+import com.thousif.trading.service.market.PriceTickEvent;
+import com.thousif.trading.util.PriceScale;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Append-only columnar history of price ticks and trade prints, one set of memory-mapped column files
+// per stream, day and symbol: {dir}/{ticks|trades}/{yyyy-MM-dd}/{SYMBOL}.{time|price|volume}.
+// Pages are left to the OS to write back, ticks are market data rather than state we recover from.
+@Component
+@Slf4j
+public class TickStore {
+
+    public enum Stream {
+        TICKS, TRADES
+    }
+
+    @Value("${trading.ticks.enabled:true}")
+    private boolean enabled;
+
+    @Value("${trading.ticks.dir:data/ticks}")
+    private String directory;
+
+    @Value("${trading.ticks.initial-rows:65536}")
+    private int initialRows;
+
+    @Value("${trading.validity.zone:Asia/Kolkata}")
+    private String zoneId;
+
+    private final Map<String, Writer> writers = new ConcurrentHashMap<>();
+    private Path root;
+    private ZoneId zone;
+
+    @PostConstruct
+    public void open() {
+        root = Paths.get(directory);
+        zone = ZoneId.of(zoneId);
+    }
+
+    @EventListener
+    public void onPriceTick(PriceTickEvent tick) {
+        append(Stream.TICKS, tick.symbol(), tick.timestamp(), tick.price(), tick.volume());
+    }
+
+    public void append(Stream stream, String symbol, long timestamp, long price, long volume) {
+        if (!enabled) {
+            return;
+        }
+        Writer writer = writers.computeIfAbsent(stream + ":" + symbol, key -> new Writer(stream, symbol));
+        try {
+            writer.append(timestamp, price, volume);
+        } catch (RuntimeException e) {
+            log.error("Failed to store {} for {}", stream, symbol, e);
+        }
+    }
+
+    // One slice per day with data in [from, to], oldest first. The slices map the files directly.
+    public List<TickSlice> query(Stream stream, String symbol, long from, long to) {
+        return query(stream, symbol, from, to, Integer.MAX_VALUE);
+    }
+
+    // Only the day directories that exist are visited, and no further days once limit rows are covered.
+    public List<TickSlice> query(Stream stream, String symbol, long from, long to, int limit) {
+        List<TickSlice> slices = new ArrayList<>();
+        long rows = 0;
+        for (LocalDate day : days(stream, day(from), day(to))) {
+            if (rows >= limit) {
+                break;
+            }
+            TickColumns columns = columns(stream, symbol, day);
+            TickSlice slice = columns != null ? columns.slice(from, to) : null;
+            if (slice != null) {
+                slices.add(slice);
+                rows += slice.size();
+            }
+        }
+        return slices;
+    }
+
+    public TickHistoryResponse getHistory(String symbol, String stream, long from, long to, int limit) {
+        Stream kind;
+        try {
+            kind = Stream.valueOf(stream.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new TradingPlatformException("Unsupported tick stream: " + stream + ", use ticks or trades");
+        }
+        if (from > to || limit < 1) {
+            throw new TradingPlatformException("Invalid tick range or limit");
+        }
+
+        List<Long> times = new ArrayList<>();
+        List<BigDecimal> prices = new ArrayList<>();
+        List<Long> volumes = new ArrayList<>();
+        boolean truncated = false;
+        for (TickSlice slice : query(kind, symbol, from, to, limit + 1)) {
+            for (int i = 0; i < slice.size(); i++) {
+                if (times.size() == limit) {
+                    truncated = true;
+                    break;
+                }
+                times.add(slice.times().get(i));
+                prices.add(PriceScale.fromTicks(slice.prices().get(i)));
+                volumes.add(slice.volumes().get(i));
+            }
+        }
+        return TickHistoryResponse.builder()
+                .symbol(symbol)
+                .stream(kind.name().toLowerCase())
+                .times(times)
+                .prices(prices)
+                .volumes(volumes)
+                .truncated(truncated)
+                .build();
+    }
+
+    private TickColumns columns(Stream stream, String symbol, LocalDate day) {
+        Writer writer = writers.get(stream + ":" + symbol);
+        if (writer != null) {
+            TickColumns open = writer.openOn(day);
+            if (open != null) {
+                return open;
+            }
+        }
+        try {
+            return TickColumns.openForRead(dayDirectory(stream, day), symbol);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read ticks for " + symbol + " on " + day, e);
+        }
+    }
+
+    private List<LocalDate> days(Stream stream, LocalDate first, LocalDate last) {
+        Path streamDirectory = root.resolve(stream.name().toLowerCase());
+        if (!Files.isDirectory(streamDirectory)) {
+            return List.of();
+        }
+        try (java.util.stream.Stream<Path> entries = Files.list(streamDirectory)) {
+            return entries.map(path -> parseDay(path.getFileName().toString()))
+                    .filter(day -> day != null && !day.isBefore(first) && !day.isAfter(last))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list " + streamDirectory, e);
+        }
+    }
+
+    private static LocalDate parseDay(String name) {
+        try {
+            return LocalDate.parse(name);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private Path dayDirectory(Stream stream, LocalDate day) {
+        return root.resolve(stream.name().toLowerCase()).resolve(day.toString());
+    }
+
+    private LocalDate day(long timestamp) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(timestamp), zone);
+    }
+
+    @PreDestroy
+    public void close() {
+        writers.values().forEach(Writer::force);
+    }
+
+    // Rolls to a new set of files when a tick falls past the end of the current day. A late tick from
+    // the day before stays in the current files, stamped no earlier than the last row.
+    private class Writer {
+
+        private final Stream stream;
+        private final String symbol;
+        private volatile Open open;
+        private long dayEnd;
+
+        private Writer(Stream stream, String symbol) {
+            this.stream = stream;
+            this.symbol = symbol;
+        }
+
+        private synchronized void append(long timestamp, long price, long volume) {
+            if (open == null || timestamp >= dayEnd) {
+                roll(day(timestamp));
+            }
+            open.columns.append(timestamp, price, volume);
+        }
+
+        private void roll(LocalDate day) {
+            if (open != null) {
+                open.columns.force();
+            }
+            try {
+                open = new Open(day, TickColumns.openForAppend(dayDirectory(stream, day), symbol, initialRows));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to open tick columns for " + symbol + " on " + day, e);
+            }
+            dayEnd = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+
+        private TickColumns openOn(LocalDate day) {
+            Open current = open;
+            return current != null && current.day.equals(day) ? current.columns : null;
+        }
+
+        private synchronized void force() {
+            if (open != null) {
+                open.columns.force();
+            }
+        }
+    }
+
+    private record Open(LocalDate day, TickColumns columns) {
+    }
+
+}
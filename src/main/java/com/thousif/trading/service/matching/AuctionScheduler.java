@@ -0,0 +1,50 @@
+package com.thousif.trading.service.matching;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Opens and closes the session with a call auction: orders collected from pre-open are uncrossed at the
+// open and continuous matching takes over from there, orders collected from pre-close are uncrossed
+// just ahead of the market close, before DAY orders expire.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class AuctionScheduler {
+
+    private final MatchingEngine matchingEngine;
+
+    @Value("${trading.auction.enabled:false}")
+    private boolean enabled;
+
+    @Scheduled(cron = "${trading.auction.pre-open-cron:0 0 9 * * MON-FRI}", zone = "${trading.validity.zone:Asia/Kolkata}")
+    public void preOpen() {
+        if (enabled) {
+            matchingEngine.startAuctions();
+        }
+    }
+
+    @Scheduled(cron = "${trading.auction.open-cron:0 8 9 * * MON-FRI}", zone = "${trading.validity.zone:Asia/Kolkata}")
+    public void open() {
+        if (enabled) {
+            matchingEngine.uncrossAll();
+        }
+    }
+
+    @Scheduled(cron = "${trading.auction.pre-close-cron:0 20 15 * * MON-FRI}", zone = "${trading.validity.zone:Asia/Kolkata}")
+    public void preClose() {
+        if (enabled) {
+            matchingEngine.startAuctions();
+        }
+    }
+
+    @Scheduled(cron = "${trading.auction.close-cron:0 29 15 * * MON-FRI}", zone = "${trading.validity.zone:Asia/Kolkata}")
+    public void close() {
+        if (enabled) {
+            matchingEngine.uncrossAll();
+        }
+    }
+
+}
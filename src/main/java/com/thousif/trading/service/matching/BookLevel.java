@@ -0,0 +1,9 @@
+package com.thousif.trading.service.matching;
+
+// Aggregated price level as published in market depth; price is in PriceScale ticks
+public record BookLevel(
+        long price,
+        long quantity,
+        int orders
+) {
+}
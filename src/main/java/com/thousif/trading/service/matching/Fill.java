@@ -0,0 +1,14 @@
+package com.thousif.trading.service.matching;
+
+import com.thousif.trading.enums.TransactionType;
+
+public record Fill(
+        String symbol,
+        String buyOrderId,
+        String sellOrderId,
+        long price,
+        int quantity,
+        TransactionType aggressorSide,
+        long timestamp
+) {
+}
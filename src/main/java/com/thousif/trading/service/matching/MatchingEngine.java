@@ -0,0 +1,211 @@
+package com.thousif.trading.service.matching;
+
+import com.thousif.trading.entity.Order;
+import com.thousif.trading.service.journal.JournalRecord;
+import com.thousif.trading.service.journal.OrderJournal;
+import com.thousif.trading.service.market.ticks.TickStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class MatchingEngine {
+
+    private final OrderJournal orderJournal;
+    private final TickStore tickStore;
+    private final Map<String, OrderBook> books = new ConcurrentHashMap<>();
+    // books first touched during pre-open join the auction too
+    private volatile boolean auctionSession;
+
+    public OrderBook getBook(String symbol) {
+        return books.computeIfAbsent(symbol, s -> {
+            OrderBook book = new OrderBook(s);
+            if (auctionSession) {
+                book.startAuction();
+            }
+            return book;
+        });
+    }
+
+    // Pre-open: orders only rest until the books are uncrossed, IOC and market orders are cancelled
+    public void startAuctions() {
+        auctionSession = true;
+        for (OrderBook book : books.values()) {
+            synchronized (book) {
+                book.startAuction();
+            }
+        }
+        log.info("Call auction started for {} book(s)", books.size());
+    }
+
+    // Uncrosses every book at its own equilibrium price and switches it to continuous matching
+    public void uncrossAll() {
+        auctionSession = false;
+        for (String symbol : books.keySet()) {
+            uncross(symbol);
+        }
+    }
+
+    public List<Fill> uncross(String symbol) {
+        OrderBook book = books.get(symbol);
+        if (book == null) {
+            return List.of();
+        }
+        List<Fill> fills;
+        synchronized (book) {
+            if (!book.isAuction()) {
+                return List.of();
+            }
+            fills = book.uncross();
+            journal(fills);
+        }
+        if (!fills.isEmpty()) {
+            log.info("Uncrossed {} at {} with {} fill(s)", symbol, fills.get(0).price(), fills.size());
+        }
+        return fills;
+    }
+
+    public List<Fill> submit(Order order) {
+        return execute(RestingOrder.from(order), "IOC".equals(order.getValidity()));
+    }
+
+    // for orders already held in memory, e.g. a triggered stop, a market sweep when immediateOrCancel
+    public List<Fill> submit(RestingOrder incoming, boolean immediateOrCancel) {
+        return execute(incoming, immediateOrCancel);
+    }
+
+    // Market orders walk the opposite side level by level as far as the protection price and never rest,
+    // whatever they cannot fill within it is cancelled
+    public List<Fill> sweep(Order order, long protectionPrice) {
+        int executed = order.getExecutedQuantity() != null ? order.getExecutedQuantity() : 0;
+        RestingOrder incoming = new RestingOrder(order.getOrderId(), order.getStock().getSymbol(),
+                order.getUser().getUsername(), order.getTransactionType(), order.getOrderType(),
+                protectionPrice, order.getQuantity(), order.getQuantity() - executed);
+        return execute(incoming, true);
+    }
+
+    private List<Fill> execute(RestingOrder incoming, boolean immediateOrCancel) {
+        OrderBook book = getBook(incoming.getSymbol());
+
+        List<Fill> fills;
+        synchronized (book) {
+            fills = book.match(incoming, !immediateOrCancel);
+            // an IOC remainder never becomes visible in the book, its cancel goes out with the fills
+            JournalRecord cancel = immediateOrCancel && incoming.getRemaining() > 0
+                    ? JournalRecord.cancel(incoming.getOrderId(), incoming.getSymbol(), incoming.getRemaining())
+                    : null;
+            journal(fills, cancel);
+        }
+
+        if (!fills.isEmpty()) {
+            log.debug("Order {} matched {} fill(s), remaining {}",
+                    incoming.getOrderId(), fills.size(), incoming.getRemaining());
+        }
+        return fills;
+    }
+
+    // Reducing the quantity at the same price keeps queue priority. A new price or a larger quantity
+    // re-queues the order at the back of its level, where it can match like a new order would.
+    // The check runs under the book lock against the order's current state, returns the new remainder
+    // or vetoes the amend by throwing. Returns null when the order is not resting in the book.
+    public List<Fill> amend(String symbol, String orderId, long price, ToIntFunction<RestingOrder> check) {
+        OrderBook book = books.get(symbol);
+        if (book == null) {
+            return null;
+        }
+        synchronized (book) {
+            RestingOrder order = book.get(orderId);
+            if (order == null) {
+                return null;
+            }
+            int remaining = check.applyAsInt(order);
+
+            long newPrice = price > 0 ? price : order.getPrice();
+            orderJournal.append(JournalRecord.amend(orderId, symbol, remaining, price));
+            if (newPrice == order.getPrice() && remaining <= order.getRemaining()) {
+                book.reduce(orderId, remaining);
+                return List.of();
+            }
+
+            book.cancel(orderId);
+            RestingOrder replacement = new RestingOrder(orderId, symbol, order.getUsername(), order.getSide(),
+                    order.getOrderType(), newPrice, order.getFilledQuantity() + remaining, remaining, order.getPeak());
+            List<Fill> fills = book.match(replacement);
+            journal(fills);
+            return fills;
+        }
+    }
+
+    public RestingOrder cancel(String symbol, String orderId) {
+        OrderBook book = books.get(symbol);
+        if (book == null) {
+            return null;
+        }
+        synchronized (book) {
+            return book.cancel(orderId);
+        }
+    }
+
+    // journaled under the book lock so replay sees fills in match order; trade prints are stored once
+    // here, where they happen, rather than by the projector, which may replay them
+    // A match result is appended as one group with a single force, however many levels it swept.
+    private void journal(List<Fill> fills) {
+        journal(fills, null);
+    }
+
+    private void journal(List<Fill> fills, JournalRecord cancel) {
+        if (fills.isEmpty()) {
+            if (cancel != null) {
+                orderJournal.append(cancel);
+            }
+            return;
+        }
+        List<JournalRecord> records = new ArrayList<>(fills.size() + 1);
+        for (Fill fill : fills) {
+            records.add(JournalRecord.fill(
+                    fill.symbol(), fill.buyOrderId(), fill.sellOrderId(), fill.price(), fill.quantity()));
+        }
+        if (cancel != null) {
+            records.add(cancel);
+        }
+        orderJournal.appendAll(records);
+        for (int i = 0; i < fills.size(); i++) {
+            Fill fill = fills.get(i);
+            tickStore.append(TickStore.Stream.TRADES, fill.symbol(), records.get(i).getTimestamp(),
+                    fill.price(), fill.quantity());
+        }
+    }
+
+    // runs a read-only view of the book under its lock, null when the symbol has no book yet
+    public <T> T read(String symbol, Function<OrderBook, T> reader) {
+        OrderBook book = books.get(symbol);
+        if (book == null) {
+            return null;
+        }
+        synchronized (book) {
+            return reader.apply(book);
+        }
+    }
+
+    public Set<String> getSymbols() {
+        return books.keySet();
+    }
+
+    public void restore(RestingOrder order) {
+        OrderBook book = getBook(order.getSymbol());
+        synchronized (book) {
+            book.rest(order);
+        }
+    }
+
+}
@@ -0,0 +1,268 @@
+package com.thousif.trading.service.matching;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Price-time priority book for a single symbol. Not thread safe, callers serialise access per book.
+public class OrderBook {
+
+    @Getter
+    private final String symbol;
+    private final TreeMap<Long, PriceLevel> bids = new TreeMap<>(Comparator.reverseOrder());
+    private final TreeMap<Long, PriceLevel> asks = new TreeMap<>();
+    private final Map<String, RestingOrder> orders = new HashMap<>();
+    // during a call auction orders only rest, they trade when the book is uncrossed
+    @Getter
+    private boolean auction;
+    @Getter
+    private long lastPrice;
+    // bumped on every change to the levels, lets readers tell whether a copy of the depth is stale
+    @Getter
+    private long version;
+
+    public OrderBook(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public List<Fill> match(RestingOrder incoming) {
+        return match(incoming, true);
+    }
+
+    // an order that may not rest (IOC) keeps its unfilled remainder, the caller cancels it
+    // allocates only the fills it produces, nothing per level it walks through
+    public List<Fill> match(RestingOrder incoming, boolean restRemainder) {
+        List<Fill> fills = Collections.emptyList();
+        if (auction) {
+            if (restRemainder && incoming.getRemaining() > 0) {
+                rest(incoming);
+            }
+            return fills;
+        }
+        TreeMap<Long, PriceLevel> opposite = incoming.isBuy() ? asks : bids;
+        Iterator<PriceLevel> levels = opposite.values().iterator();
+
+        while (incoming.getRemaining() > 0 && levels.hasNext()) {
+            PriceLevel level = levels.next();
+            if (!crosses(incoming, level.getPrice())) {
+                break;
+            }
+
+            while (incoming.getRemaining() > 0 && !level.isEmpty()) {
+                RestingOrder maker = level.getHead();
+                int qty = Math.min(incoming.getRemaining(), maker.getVisible());
+
+                maker.fill(qty);
+                incoming.fill(qty);
+                level.reduce(qty);
+
+                if (fills.isEmpty()) {
+                    fills = new ArrayList<>();
+                }
+                fills.add(new Fill(
+                        symbol,
+                        incoming.isBuy() ? incoming.getOrderId() : maker.getOrderId(),
+                        incoming.isBuy() ? maker.getOrderId() : incoming.getOrderId(),
+                        level.getPrice(),
+                        qty,
+                        incoming.getSide(),
+                        System.currentTimeMillis()
+                ));
+                lastPrice = level.getPrice();
+                afterFill(level, maker);
+            }
+
+            if (level.isEmpty()) {
+                levels.remove();
+            }
+        }
+
+        if (restRemainder && incoming.getRemaining() > 0) {
+            rest(incoming);
+        }
+        return fills;
+    }
+
+    public void startAuction() {
+        auction = true;
+    }
+
+    // Ends the auction with a single-price uncross. Cumulative demand and supply are built in one
+    // ascending sweep over the price levels and the price that trades the most volume wins, ties going
+    // to the smaller imbalance and then to the price nearest the last trade. Only shown quantity
+    // counts towards the curves, hidden iceberg reserves can still trade at the chosen price.
+    public List<Fill> uncross() {
+        auction = false;
+        if (bids.isEmpty() || asks.isEmpty() || bids.firstKey() < asks.firstKey()) {
+            return Collections.emptyList();
+        }
+
+        long price = equilibriumPrice();
+        long timestamp = System.currentTimeMillis();
+        List<Fill> fills = new ArrayList<>();
+        while (!bids.isEmpty() && !asks.isEmpty() && bids.firstKey() >= price && asks.firstKey() <= price) {
+            PriceLevel bidLevel = bids.get(bids.firstKey());
+            PriceLevel askLevel = asks.get(asks.firstKey());
+            RestingOrder buy = bidLevel.getHead();
+            RestingOrder sell = askLevel.getHead();
+            int qty = Math.min(buy.getVisible(), sell.getVisible());
+
+            buy.fill(qty);
+            sell.fill(qty);
+            bidLevel.reduce(qty);
+            askLevel.reduce(qty);
+            // an auction trade has no aggressor
+            fills.add(new Fill(symbol, buy.getOrderId(), sell.getOrderId(), price, qty, null, timestamp));
+
+            afterFill(bidLevel, buy);
+            afterFill(askLevel, sell);
+            if (bidLevel.isEmpty()) {
+                bids.remove(bidLevel.getPrice());
+            }
+            if (askLevel.isEmpty()) {
+                asks.remove(askLevel.getPrice());
+            }
+        }
+        lastPrice = price;
+        return fills;
+    }
+
+    private long equilibriumPrice() {
+        long demand = 0;
+        for (PriceLevel level : bids.values()) {
+            demand += level.getTotalQuantity();
+        }
+        long supply = 0;
+
+        // asks ascend naturally, bids are stored descending so their reverse view ascends
+        Iterator<PriceLevel> askLevels = asks.values().iterator();
+        Iterator<PriceLevel> bidLevels = bids.descendingMap().values().iterator();
+        PriceLevel ask = askLevels.hasNext() ? askLevels.next() : null;
+        PriceLevel bid = bidLevels.hasNext() ? bidLevels.next() : null;
+
+        long bestPrice = 0;
+        long bestVolume = -1;
+        long bestImbalance = 0;
+        while (ask != null || bid != null) {
+            long price = ask == null ? bid.getPrice()
+                    : bid == null ? ask.getPrice()
+                    : Math.min(ask.getPrice(), bid.getPrice());
+            // supply at p counts asks up to p, demand at p counts bids from p up
+            if (ask != null && ask.getPrice() == price) {
+                supply += ask.getTotalQuantity();
+                ask = askLevels.hasNext() ? askLevels.next() : null;
+            }
+
+            long volume = Math.min(demand, supply);
+            long imbalance = Math.abs(demand - supply);
+            if (volume > bestVolume
+                    || (volume == bestVolume && (imbalance < bestImbalance
+                    || (imbalance == bestImbalance && Math.abs(price - lastPrice) < Math.abs(bestPrice - lastPrice))))) {
+                bestPrice = price;
+                bestVolume = volume;
+                bestImbalance = imbalance;
+            }
+
+            if (bid != null && bid.getPrice() == price) {
+                demand -= bid.getTotalQuantity();
+                bid = bidLevels.hasNext() ? bidLevels.next() : null;
+            }
+        }
+        return bestPrice;
+    }
+
+    private void afterFill(PriceLevel level, RestingOrder order) {
+        version++;
+        if (order.getRemaining() == 0) {
+            level.remove(order);
+            orders.remove(order.getOrderId());
+        } else if (order.getVisible() == 0) {
+            // iceberg slice used up: show the next one at the back of the queue, in place
+            level.remove(order);
+            order.replenish();
+            level.append(order);
+        }
+    }
+
+    public void rest(RestingOrder order) {
+        order.replenish();
+        TreeMap<Long, PriceLevel> side = order.isBuy() ? bids : asks;
+        side.computeIfAbsent(order.getPrice(), PriceLevel::new).append(order);
+        orders.put(order.getOrderId(), order);
+        version++;
+    }
+
+    public RestingOrder cancel(String orderId) {
+        RestingOrder order = orders.remove(orderId);
+        if (order == null) {
+            return null;
+        }
+        PriceLevel level = order.level;
+        level.remove(order);
+        if (level.isEmpty()) {
+            (order.isBuy() ? bids : asks).remove(level.getPrice());
+        }
+        version++;
+        return order;
+    }
+
+    // shrinks a resting order where it is, it keeps its place in the queue
+    public void reduce(String orderId, int remaining) {
+        RestingOrder order = orders.get(orderId);
+        if (order == null || remaining >= order.getRemaining()) {
+            throw new IllegalArgumentException("Cannot reduce " + orderId + " to " + remaining);
+        }
+        int visible = order.getVisible();
+        order.reduce(order.getRemaining() - remaining);
+        order.level.reduce(visible - order.getVisible());
+        version++;
+    }
+
+    public RestingOrder get(String orderId) {
+        return orders.get(orderId);
+    }
+
+    public boolean contains(String orderId) {
+        return orders.containsKey(orderId);
+    }
+
+    PriceLevel getLevel(boolean bid, long price) {
+        return (bid ? bids : asks).get(price);
+    }
+
+    // best first, quantities are what is shown
+    public List<BookLevel> depth(boolean bid, int count) {
+        List<BookLevel> depth = new ArrayList<>(Math.min(count, (bid ? bids : asks).size()));
+        for (PriceLevel level : (bid ? bids : asks).values()) {
+            if (depth.size() == count) {
+                break;
+            }
+            depth.add(new BookLevel(level.getPrice(), level.getTotalQuantity(), level.getOrderCount()));
+        }
+        return depth;
+    }
+
+    public Long bestBid() {
+        return bids.isEmpty() ? null : bids.firstKey();
+    }
+
+    public Long bestAsk() {
+        return asks.isEmpty() ? null : asks.firstKey();
+    }
+
+    public int size() {
+        return orders.size();
+    }
+
+    private boolean crosses(RestingOrder incoming, long levelPrice) {
+        return incoming.isBuy() ? levelPrice <= incoming.getPrice() : levelPrice >= incoming.getPrice();
+    }
+
+}
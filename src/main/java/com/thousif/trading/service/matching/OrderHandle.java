@@ -0,0 +1,63 @@
+package com.thousif.trading.service.matching;
+
+import com.thousif.trading.enums.OrderType;
+import com.thousif.trading.enums.TransactionType;
+import com.thousif.trading.service.journal.JournalRecord;
+import lombok.Getter;
+
+// What cancel and amend need to know about an open order without loading it from MySQL.
+// Mutated only by the journal hook, which runs serialised in sequence order.
+@Getter
+public class OrderHandle {
+
+    private final String orderId;
+    private final String symbol;
+    private final long userId;
+    private final String username;
+    private final TransactionType side;
+    private final OrderType orderType;
+    private final String validity;
+    private final long triggerPrice;
+    private final int disclosedQuantity;
+    private volatile long price;
+    private volatile int quantity;
+    private volatile int remaining;
+    private volatile boolean triggered;
+
+    OrderHandle(JournalRecord accept, int remaining, boolean triggered) {
+        this.orderId = accept.getOrderId();
+        this.symbol = accept.getSymbol();
+        this.userId = accept.getUserId();
+        this.username = accept.getUsername();
+        this.side = accept.getTransactionType();
+        this.orderType = accept.getOrderType();
+        this.validity = accept.getValidity();
+        this.triggerPrice = accept.getTriggerPrice();
+        this.disclosedQuantity = accept.getDisclosedQuantity() != null ? accept.getDisclosedQuantity() : 0;
+        this.price = accept.getPrice();
+        this.quantity = accept.getQuantity();
+        this.remaining = remaining;
+        this.triggered = triggered;
+    }
+
+    public int getFilledQuantity() {
+        return quantity - remaining;
+    }
+
+    void fill(int qty) {
+        remaining -= qty;
+    }
+
+    void amend(long newPrice, int newRemaining) {
+        if (newPrice > 0) {
+            price = newPrice;
+        }
+        quantity = quantity - remaining + newRemaining;
+        remaining = newRemaining;
+    }
+
+    void trigger() {
+        triggered = true;
+    }
+
+}
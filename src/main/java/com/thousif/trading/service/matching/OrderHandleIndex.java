@@ -0,0 +1,104 @@
+package com.thousif.trading.service.matching;
+
+import com.thousif.trading.enums.OrderType;
+import com.thousif.trading.service.journal.JournalRecord;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// orderId -> handle for every open order, kept current by the journal so cancel and amend
+// find an order's owner, symbol and remaining quantity in constant time
+@Component
+public class OrderHandleIndex {
+
+    private final Map<String, OrderHandle> handles = new ConcurrentHashMap<>();
+    private final Map<Long, Set<String>> byUser = new ConcurrentHashMap<>();
+
+    public OrderHandle get(String orderId) {
+        return handles.get(orderId);
+    }
+
+    // open orders of one user, optionally only for one symbol
+    public List<OrderHandle> forUser(long userId, String symbol) {
+        Set<String> orderIds = byUser.get(userId);
+        if (orderIds == null) {
+            return List.of();
+        }
+        List<OrderHandle> open = new ArrayList<>(orderIds.size());
+        for (String orderId : orderIds) {
+            OrderHandle handle = handles.get(orderId);
+            if (handle != null && (symbol == null || symbol.equals(handle.getSymbol()))) {
+                open.add(handle);
+            }
+        }
+        return open;
+    }
+
+    public int size() {
+        return handles.size();
+    }
+
+    // journal hook, called for every appended record in sequence order
+    public void apply(JournalRecord record) {
+        switch (record.getType()) {
+            case ACCEPT -> add(new OrderHandle(record, record.getQuantity(),
+                    record.getOrderType() == OrderType.LIMIT));
+            case TRIGGER -> {
+                OrderHandle handle = handles.get(record.getOrderId());
+                if (handle != null) {
+                    handle.trigger();
+                }
+            }
+            case FILL -> {
+                fill(record.getBuyOrderId(), record.getQuantity());
+                fill(record.getSellOrderId(), record.getQuantity());
+            }
+            case AMEND -> {
+                OrderHandle handle = handles.get(record.getOrderId());
+                if (handle != null) {
+                    handle.amend(record.getPrice(), record.getQuantity());
+                }
+            }
+            case CANCEL, REJECT -> remove(record.getOrderId());
+        }
+    }
+
+    // re-registers an order that was open at startup
+    public void restore(JournalRecord accept, int remaining, boolean triggered) {
+        add(new OrderHandle(accept, remaining, triggered));
+    }
+
+    private void add(OrderHandle handle) {
+        handles.put(handle.getOrderId(), handle);
+        byUser.computeIfAbsent(handle.getUserId(), id -> ConcurrentHashMap.newKeySet()).add(handle.getOrderId());
+    }
+
+    private void remove(String orderId) {
+        OrderHandle handle = handles.remove(orderId);
+        if (handle != null) {
+            byUser.computeIfPresent(handle.getUserId(), (id, orderIds) -> {
+                orderIds.remove(orderId);
+                return orderIds.isEmpty() ? null : orderIds;
+            });
+        }
+    }
+
+    private void fill(String orderId, int quantity) {
+        if (orderId == null) {
+            return;
+        }
+        OrderHandle handle = handles.get(orderId);
+        if (handle == null) {
+            return;
+        }
+        handle.fill(quantity);
+        if (handle.getRemaining() <= 0) {
+            remove(orderId);
+        }
+    }
+
+}
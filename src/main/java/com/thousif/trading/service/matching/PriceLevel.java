@@ -0,0 +1,60 @@
+package com.thousif.trading.service.matching;
+
+import lombok.Getter;
+
+// FIFO queue of resting orders at a single price, kept as an intrusive doubly linked list.
+// The total only counts what is shown, iceberg reserves stay hidden.
+@Getter
+public class PriceLevel {
+
+    private final long price;
+    private RestingOrder head;
+    private RestingOrder tail;
+    private long totalQuantity;
+    private int orderCount;
+
+    PriceLevel(long price) {
+        this.price = price;
+    }
+
+    void append(RestingOrder order) {
+        order.level = this;
+        order.prev = tail;
+        order.next = null;
+        if (tail == null) {
+            head = order;
+        } else {
+            tail.next = order;
+        }
+        tail = order;
+        totalQuantity += order.getVisible();
+        orderCount++;
+    }
+
+    void remove(RestingOrder order) {
+        if (order.prev == null) {
+            head = order.next;
+        } else {
+            order.prev.next = order.next;
+        }
+        if (order.next == null) {
+            tail = order.prev;
+        } else {
+            order.next.prev = order.prev;
+        }
+        totalQuantity -= order.getVisible();
+        orderCount--;
+        order.level = null;
+        order.prev = null;
+        order.next = null;
+    }
+
+    void reduce(int qty) {
+        totalQuantity -= qty;
+    }
+
+    public boolean isEmpty() {
+        return head == null;
+    }
+
+}
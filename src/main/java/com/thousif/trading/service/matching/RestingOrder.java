@@ -0,0 +1,92 @@
+package com.thousif.trading.service.matching;
+
+import com.thousif.trading.entity.Order;
+import com.thousif.trading.enums.OrderType;
+import com.thousif.trading.enums.TransactionType;
+import com.thousif.trading.util.PriceScale;
+import lombok.Getter;
+
+@Getter
+public class RestingOrder {
+
+    private final String orderId;
+    private final String symbol;
+    private final String username;
+    private final TransactionType side;
+    private final OrderType orderType;
+    private final long price;
+    private int quantity;
+    private int remaining;
+    // iceberg slice size, 0 when the whole remainder is shown
+    private final int peak;
+    // the part of the remainder that is shown and can match
+    private int visible;
+
+    // intrusive links so a price level can unlink an order without searching
+    PriceLevel level;
+    RestingOrder prev;
+    RestingOrder next;
+
+    public RestingOrder(String orderId, String symbol, String username, TransactionType side,
+                        OrderType orderType, long price, int quantity, int remaining) {
+        this(orderId, symbol, username, side, orderType, price, quantity, remaining, 0);
+    }
+
+    public RestingOrder(String orderId, String symbol, String username, TransactionType side,
+                        OrderType orderType, long price, int quantity, int remaining, int peak) {
+        this.orderId = orderId;
+        this.symbol = symbol;
+        this.username = username;
+        this.side = side;
+        this.orderType = orderType;
+        this.price = price;
+        this.quantity = quantity;
+        this.remaining = remaining;
+        this.peak = peak > 0 && peak < remaining ? peak : 0;
+        replenish();
+    }
+
+    public static RestingOrder from(Order order) {
+        int executed = order.getExecutedQuantity() != null ? order.getExecutedQuantity() : 0;
+        return new RestingOrder(
+                order.getOrderId(),
+                order.getStock().getSymbol(),
+                order.getUser().getUsername(),
+                order.getTransactionType(),
+                order.getOrderType(),
+                order.getPrice() != null ? PriceScale.toTicks(order.getPrice()) : 0L,
+                order.getQuantity(),
+                order.getQuantity() - executed,
+                order.getDisclosedQuantity() != null ? order.getDisclosedQuantity() : 0
+        );
+    }
+
+    public boolean isBuy() {
+        return side == TransactionType.BUY;
+    }
+
+    public int getFilledQuantity() {
+        return quantity - remaining;
+    }
+
+    public boolean isIceberg() {
+        return peak > 0;
+    }
+
+    void fill(int qty) {
+        remaining -= qty;
+        visible = Math.max(0, visible - qty);
+    }
+
+    void reduce(int qty) {
+        quantity -= qty;
+        remaining -= qty;
+        visible = Math.min(visible, remaining);
+    }
+
+    // shows the next slice of an iceberg, or the whole remainder of a plain order
+    void replenish() {
+        visible = peak > 0 ? Math.min(peak, remaining) : remaining;
+    }
+
+}
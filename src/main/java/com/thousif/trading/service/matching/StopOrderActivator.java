@@ -0,0 +1,37 @@
+package com.thousif.trading.service.matching;
+
+import com.thousif.trading.service.market.PriceTickEvent;
+import com.thousif.trading.service.sequencer.OrderSequencer;
+import com.thousif.trading.service.trading.OrderService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class StopOrderActivator {
+
+    private final StopTriggerEngine stopTriggerEngine;
+    private final OrderSequencer orderSequencer;
+    private final OrderService orderService;
+
+    @EventListener
+    public void onPriceTick(PriceTickEvent tick) {
+        List<String> triggered = stopTriggerEngine.onPrice(tick.symbol(), tick.price());
+        for (String orderId : triggered) {
+            log.info("Stop order {} triggered at {} on {}", orderId, tick.price(), tick.symbol());
+            orderSequencer.submit(tick.symbol(), () -> {
+                orderService.activateStopOrder(orderId, tick.price());
+                return null;
+            }).exceptionally(e -> {
+                log.error("Failed to activate stop order: {}", orderId, e);
+                return null;
+            });
+        }
+    }
+
+}
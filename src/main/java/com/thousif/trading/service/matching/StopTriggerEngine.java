@@ -0,0 +1,127 @@
+package com.thousif.trading.service.matching;
+
+import com.thousif.trading.entity.Order;
+import com.thousif.trading.enums.TransactionType;
+import com.thousif.trading.util.PriceScale;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Holds untriggered SL / SL_M orders per symbol, indexed by trigger price
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class StopTriggerEngine {
+
+    private final Map<String, StopBook> stopBooks = new ConcurrentHashMap<>();
+
+    public void register(Order order) {
+        register(order.getStock().getSymbol(), order.getOrderId(),
+                order.getTransactionType(), PriceScale.toTicks(order.getTriggerPrice()));
+    }
+
+    public void register(String symbol, String orderId, TransactionType side, long triggerPrice) {
+        StopBook book = stopBooks.computeIfAbsent(symbol, s -> new StopBook());
+        synchronized (book) {
+            book.add(orderId, side == TransactionType.BUY, triggerPrice);
+        }
+    }
+
+    public boolean cancel(String symbol, String orderId) {
+        StopBook book = stopBooks.get(symbol);
+        if (book == null) {
+            return false;
+        }
+        synchronized (book) {
+            return book.remove(orderId);
+        }
+    }
+
+    // runs the action while the order is held untriggered, so a tick cannot activate it half amended
+    public boolean whilePending(String symbol, String orderId, Runnable action) {
+        StopBook book = stopBooks.get(symbol);
+        if (book == null) {
+            return false;
+        }
+        synchronized (book) {
+            if (!book.entries.containsKey(orderId)) {
+                return false;
+            }
+            action.run();
+            return true;
+        }
+    }
+
+    // returns the orders whose trigger the price crossed, removing them from the index
+    public List<String> onPrice(String symbol, long price) {
+        StopBook book = stopBooks.get(symbol);
+        if (book == null) {
+            return Collections.emptyList();
+        }
+        synchronized (book) {
+            return book.trigger(price);
+        }
+    }
+
+    private record StopEntry(long trigger, boolean buy) {
+    }
+
+    private static final class StopBook {
+
+        // buy stops fire when price rises to the trigger, sell stops when it falls to it
+        private final TreeMap<Long, LinkedHashSet<String>> buyStops = new TreeMap<>();
+        private final TreeMap<Long, LinkedHashSet<String>> sellStops = new TreeMap<>();
+        private final Map<String, StopEntry> entries = new HashMap<>();
+
+        void add(String orderId, boolean buy, long trigger) {
+            (buy ? buyStops : sellStops).computeIfAbsent(trigger, t -> new LinkedHashSet<>()).add(orderId);
+            entries.put(orderId, new StopEntry(trigger, buy));
+        }
+
+        boolean remove(String orderId) {
+            StopEntry entry = entries.remove(orderId);
+            if (entry == null) {
+                return false;
+            }
+            TreeMap<Long, LinkedHashSet<String>> index = entry.buy() ? buyStops : sellStops;
+            LinkedHashSet<String> level = index.get(entry.trigger());
+            level.remove(orderId);
+            if (level.isEmpty()) {
+                index.remove(entry.trigger());
+            }
+            return true;
+        }
+
+        List<String> trigger(long price) {
+            List<String> triggered = Collections.emptyList();
+            while (!buyStops.isEmpty() && buyStops.firstKey() <= price) {
+                triggered = drain(buyStops.pollFirstEntry().getValue(), triggered);
+            }
+            while (!sellStops.isEmpty() && sellStops.lastKey() >= price) {
+                triggered = drain(sellStops.pollLastEntry().getValue(), triggered);
+            }
+            return triggered;
+        }
+
+        private List<String> drain(LinkedHashSet<String> level, List<String> triggered) {
+            if (triggered.isEmpty()) {
+                triggered = new ArrayList<>(level.size());
+            }
+            for (String orderId : level) {
+                entries.remove(orderId);
+                triggered.add(orderId);
+            }
+            return triggered;
+        }
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.thousif.trading.service.messaging;
+
+import com.thousif.trading.entity.EventOutbox;
+import com.thousif.trading.repository.EventOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Publishes the event outbox in id order. Sends of a batch are pipelined and coalesced by the
+// producer's linger and compression, and the rows are only deleted once the broker acked all of them.
+// Order events are keyed by order id and notification events by user id, so each order's and each user's
+// events land on one partition in order.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class EventOutboxRelay {
+
+    private final EventOutboxRepository outboxRepository;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+
+    @Value("${trading.events.kafka-enabled:false}")
+    private boolean kafkaEnabled;
+
+    @Value("${trading.events.relay.batch-size:500}")
+    private int batchSize;
+
+    @Value("${trading.events.relay.send-timeout-ms:30000}")
+    private long sendTimeoutMillis;
+
+    @Scheduled(fixedDelayString = "${trading.events.relay.poll-interval-ms:200}")
+    public void drain() {
+        List<EventOutbox> batch;
+        do {
+            batch = outboxRepository.findAllByOrderByIdAsc(PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                return;
+            }
+            if (!publish(batch)) {
+                // left in place and retried on the next poll
+                return;
+            }
+            outboxRepository.deleteAllByIdInBatch(batch.stream().map(EventOutbox::getId).toList());
+        } while (batch.size() == batchSize);
+    }
+
+    private boolean publish(List<EventOutbox> batch) {
+        if (!kafkaEnabled) {
+            // local stand-in for the broker
+            batch.forEach(event -> log.debug("Published event to {} key={}", event.getTopic(), event.getEventKey()));
+            return true;
+        }
+
+        CompletableFuture<?>[] sends = batch.stream()
+                .map(event -> kafkaTemplate.send(event.getTopic(), event.getEventKey(), event.getPayload()))
+                .toArray(CompletableFuture[]::new);
+
+        try {
+            CompletableFuture.allOf(sends).get(sendTimeoutMillis, TimeUnit.MILLISECONDS);
+            log.debug("Published {} event(s)", batch.size());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.error("Failed to publish {} event(s) starting at outbox id {}", batch.size(), batch.get(0).getId(), e);
+            return false;
+        }
+    }
+
+}
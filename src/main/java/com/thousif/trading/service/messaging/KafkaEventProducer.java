@@ -1,36 +1,53 @@
 package com.thousif.trading.service.messaging;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thousif.trading.entity.EventOutbox;
+import com.thousif.trading.exception.TradingPlatformException;
+import com.thousif.trading.repository.EventOutboxRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-//import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+
+// Events are written to the outbox in the caller's transaction and published by EventOutboxRelay,
+// so they are neither lost nor sent for changes that rolled back
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class KafkaEventProducer {
 
-    //private final KafkaTemplate<String, String> kafkaTemplate;
+    static final String ORDER_TOPIC = "events.orders";
+    static final String NOTIFICATION_TOPIC = "events.notifications";
+
+    private final EventOutboxRepository outboxRepository;
     private final ObjectMapper objectMapper;
-    private static final String ORDER_TOPIC = "events.orders";
-    private static final String NOTIFICATION_TOPIC = "events.notifications";
 
+    @Transactional(propagation = Propagation.MANDATORY)
     public void publishOrderEvent(String key, Object payload) {
         send(ORDER_TOPIC, key, payload);
     }
 
-    public void publishNotificationEvent(String userId, String key, Object payload) {
-        send(NOTIFICATION_TOPIC, key, payload);
+    // keyed by user, so a user's notifications stay on one partition and in order
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publishNotificationEvent(String userId, Object payload) {
+        send(NOTIFICATION_TOPIC, userId, payload);
     }
 
     private void send(String topic, String key, Object payload) {
         try {
-            String json = objectMapper.writeValueAsString(payload);
-            //kafkaTemplate.send(topic, key, json);
-            log.debug("Published event to {} key={}", topic, key);
-        } catch (Exception e) {
-            log.error("Failed to publish event to {} key={}", topic, key, e);
+            outboxRepository.save(EventOutbox.builder()
+                    .topic(topic)
+                    .eventKey(key)
+                    .payload(objectMapper.writeValueAsString(payload))
+                    .createdAt(LocalDateTime.now())
+                    .build());
+            log.debug("Queued event for {} key={}", topic, key);
+        } catch (JsonProcessingException e) {
+            throw new TradingPlatformException("Failed to serialize event for " + topic + " key=" + key, e);
         }
     }
 
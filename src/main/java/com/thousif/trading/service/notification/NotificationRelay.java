@@ -0,0 +1,92 @@
+package com.thousif.trading.service.notification;
+
+import com.thousif.trading.entity.NotificationOutbox;
+import com.thousif.trading.entity.User;
+import com.thousif.trading.repository.NotificationOutboxRepository;
+import com.thousif.trading.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Drains the notification outbox in batches, delivery is at-least-once. A row is deleted once it was
+// handed to the email and sms senders; one that failed stays for the next poll until it runs out of attempts.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class NotificationRelay {
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final UserRepository userRepository;
+    private final NotificationService notificationService;
+
+    @Value("${trading.notifications.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${trading.notifications.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Scheduled(fixedDelayString = "${trading.notifications.outbox.poll-interval-ms:1000}")
+    public void drain() {
+        List<NotificationOutbox> batch;
+        do {
+            batch = outboxRepository.findAllByOrderByIdAsc(PageRequest.of(0, batchSize));
+            if (batch.isEmpty()) {
+                return;
+            }
+            // rows kept for a retry would come straight back, they wait for the next poll
+        } while (relay(batch) && batch.size() == batchSize);
+    }
+
+    // returns whether every row in the batch was removed from the outbox
+    private boolean relay(List<NotificationOutbox> batch) {
+        List<Long> userIds = batch.stream().map(NotificationOutbox::getUserId).distinct().toList();
+        Map<Long, User> users = userRepository.findAllById(userIds).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+
+        List<Long> done = new ArrayList<>(batch.size());
+        List<NotificationOutbox> retry = new ArrayList<>();
+        for (NotificationOutbox notification : batch) {
+            User user = users.get(notification.getUserId());
+            if (user == null) {
+                log.warn("Dropping {} notification for unknown user {}", notification.getType(), notification.getUserId());
+                done.add(notification.getId());
+                continue;
+            }
+            try {
+                notificationService.deliver(notification, user);
+                done.add(notification.getId());
+            } catch (Exception e) {
+                // a bad entry must not hold back the rest of the batch
+                notification.setAttempts(notification.getAttempts() + 1);
+                if (notification.getAttempts() >= maxAttempts) {
+                    log.error("Dropping {} notification {} after {} failed attempt(s)",
+                            notification.getType(), notification.getId(), notification.getAttempts(), e);
+                    done.add(notification.getId());
+                } else {
+                    log.warn("Failed to deliver {} notification {}, will retry: {}",
+                            notification.getType(), notification.getId(), e.getMessage());
+                    retry.add(notification);
+                }
+            }
+        }
+
+        if (!done.isEmpty()) {
+            outboxRepository.deleteAllByIdInBatch(done);
+        }
+        if (!retry.isEmpty()) {
+            outboxRepository.saveAll(retry);
+        }
+        log.debug("Relayed {} notification(s), {} kept for retry", done.size(), retry.size());
+        return retry.isEmpty();
+    }
+
+}
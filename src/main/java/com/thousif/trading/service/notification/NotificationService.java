@@ -1,12 +1,20 @@
 package com.thousif.trading.service.notification;
 
+import com.thousif.trading.entity.NotificationOutbox;
 import com.thousif.trading.entity.Order;
 import com.thousif.trading.entity.User;
+import com.thousif.trading.enums.NotificationType;
+import com.thousif.trading.enums.TransactionType;
+import com.thousif.trading.repository.NotificationOutboxRepository;
+import com.thousif.trading.service.messaging.KafkaEventProducer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -15,8 +23,68 @@ public class NotificationService {
 
     private final EmailService emailService;
     private final SmsService smsService;
+    private final NotificationOutboxRepository outboxRepository;
+    private final KafkaEventProducer kafkaEventProducer;
 
-    public void sendWelcomeNotifications(User user) {
+    // Outbox writers: called inside the transaction that makes the change, the relay delivers later
+
+    public void enqueueWelcome(User user) {
+        enqueue(NotificationOutbox.builder()
+                .type(NotificationType.WELCOME)
+                .userId(user.getId())
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+
+    public void enqueueOrderPlaced(Long userId, String orderId, String symbol, TransactionType transactionType,
+                                   int quantity, BigDecimal price) {
+        enqueue(NotificationOutbox.builder()
+                .type(NotificationType.ORDER_PLACED)
+                .userId(userId)
+                .orderId(orderId)
+                .symbol(symbol)
+                .transactionType(transactionType.name())
+                .quantity(quantity)
+                .price(price)
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+
+    public void enqueueOrderExecuted(Order order, BigDecimal executedPrice) {
+        enqueue(NotificationOutbox.builder()
+                .type(NotificationType.ORDER_EXECUTED)
+                .userId(order.getUser().getId())
+                .orderId(order.getOrderId())
+                .symbol(order.getStock().getSymbol())
+                .transactionType(order.getTransactionType().name())
+                .quantity(order.getQuantity())
+                .price(executedPrice)
+                .createdAt(LocalDateTime.now())
+                .build());
+    }
+
+    private void enqueue(NotificationOutbox notification) {
+        outboxRepository.save(notification);
+
+        String userId = String.valueOf(notification.getUserId());
+        Map<String, Object> event = new HashMap<>();
+        event.put("eventType", notification.getType().name());
+        event.put("userId", notification.getUserId());
+        if (notification.getOrderId() != null) {
+            event.put("orderId", notification.getOrderId());
+        }
+        kafkaEventProducer.publishNotificationEvent(userId, event);
+    }
+
+    public void deliver(NotificationOutbox notification, User user) {
+        switch (notification.getType()) {
+            case WELCOME -> sendWelcomeNotifications(user);
+            case ORDER_PLACED -> sendOrderPlacedNotifications(notification, user);
+            case ORDER_EXECUTED -> sendOrderExecutedNotifications(notification, user);
+        }
+    }
+
+    private void sendWelcomeNotifications(User user) {
         // Email
         emailService.sendWelcomeEmail(user.getEmail(), user.getUsername());
 
@@ -30,50 +98,46 @@ public class NotificationService {
         }
     }
 
-    public void sendOrderPlacedNotifications(Order order) {
-        User user = order.getUser();
-
+    private void sendOrderPlacedNotifications(NotificationOutbox notification, User user) {
         // Email
         emailService.sendOrderConfirmationEmail(
                 user.getEmail(),
                 user.getUsername(),
-                order.getOrderId(),
-                order.getStock().getSymbol(),
-                order.getTransactionType().toString(),
-                order.getQuantity(),
-                order.getPrice() != null ? order.getPrice().toString() : "Market Price"
+                notification.getOrderId(),
+                notification.getSymbol(),
+                notification.getTransactionType(),
+                notification.getQuantity(),
+                notification.getPrice() != null ? notification.getPrice().toString() : "Market Price"
         );
 
         // SMS
         if (user.getPhoneNumber() != null) {
             smsService.sendOrderNotification(
                     user.getPhoneNumber(),
-                    order.getOrderId(),
-                    order.getStock().getSymbol(),
-                    order.getTransactionType().toString()
+                    notification.getOrderId(),
+                    notification.getSymbol(),
+                    notification.getTransactionType()
             );
         }
     }
 
-    public void sendOrderExecutedNotifications(Order order, BigDecimal executedPrice) {
-        User user = order.getUser();
-
+    private void sendOrderExecutedNotifications(NotificationOutbox notification, User user) {
         // Email
         emailService.sendOrderExecutionEmail(
                 user.getEmail(),
                 user.getUsername(),
-                order.getOrderId(),
-                order.getStock().getSymbol(),
-                executedPrice.toString()
+                notification.getOrderId(),
+                notification.getSymbol(),
+                notification.getPrice().toString()
         );
 
         // SMS
         if (user.getPhoneNumber() != null) {
             smsService.sendOrderExecutionNotification(
                     user.getPhoneNumber(),
-                    order.getOrderId(),
-                    order.getStock().getSymbol(),
-                    executedPrice.toString()
+                    notification.getOrderId(),
+                    notification.getSymbol(),
+                    notification.getPrice().toString()
             );
         }
     }
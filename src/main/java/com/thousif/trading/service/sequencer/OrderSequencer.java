@@ -0,0 +1,172 @@
+package com.thousif.trading.service.sequencer;
+
+import com.thousif.trading.dto.request.OrderRequest;
+import com.thousif.trading.dto.response.OrderResponse;
+import com.thousif.trading.entity.Order;
+import com.thousif.trading.exception.TradingPlatformException;
+import com.thousif.trading.service.cache.ClientOrderIdCache;
+import com.thousif.trading.service.trading.OrderService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+// Routes order commands to one writer thread per symbol shard so a symbol's book and rows are never contended
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class OrderSequencer {
+
+    private final OrderService orderService;
+    private final ClientOrderIdCache clientOrderIdCache;
+
+    @Value("${trading.sequencer.enabled:false}")
+    private boolean enabled;
+
+    @Value("${trading.sequencer.shards:0}")
+    private int configuredShards;
+
+    @Value("${trading.sequencer.buffer-size:4096}")
+    private int bufferSize;
+
+    private Shard[] shards = new Shard[0];
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        int count = configuredShards > 0 ? configuredShards : Runtime.getRuntime().availableProcessors();
+        shards = new Shard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new Shard(i, bufferSize);
+            shards[i].thread.start();
+        }
+        log.info("Order sequencer started with {} shard(s), buffer size {}", count, shards[0].ring.capacity());
+    }
+
+    public CompletableFuture<OrderResponse> placeOrder(OrderRequest request, String username) {
+        return clientOrderIdCache.place(username, request.getClientOrderId(),
+                () -> submit(request.getStockSymbol(), () -> orderService.placeOrder(request, username)));
+    }
+
+    // the basket is validated and journaled up front, then each order runs on its own symbol's shard
+    public CompletableFuture<List<OrderResponse>> placeOrders(List<OrderRequest> requests, String username) {
+        List<Order> accepted;
+        try {
+            accepted = orderService.acceptOrders(requests, username);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        List<CompletableFuture<OrderResponse>> results = accepted.stream()
+                .map(order -> submit(order.getStock().getSymbol(), () -> orderService.executeAccepted(order))
+                        .exceptionally(e -> orderService.rejectAccepted(order, e)))
+                .toList();
+        return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                .thenApply(done -> results.stream().map(CompletableFuture::join).toList());
+    }
+
+    public <T> CompletableFuture<T> submit(String symbol, Supplier<T> command) {
+        if (!enabled) {
+            try {
+                return CompletableFuture.completedFuture(command.get());
+            } catch (RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        Command<T> task = new Command<>(command);
+        if (!shardFor(symbol).ring.offer(task)) {
+            task.future.completeExceptionally(
+                    new TradingPlatformException("Order sequencer is busy for " + symbol + ", please retry"));
+        }
+        return task.future;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private Shard shardFor(String symbol) {
+        return shards[(symbol.hashCode() & Integer.MAX_VALUE) % shards.length];
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (Shard shard : shards) {
+            shard.running = false;
+            LockSupport.unpark(shard.thread);
+        }
+    }
+
+    private static final class Command<T> implements Runnable {
+
+        private final Supplier<T> supplier;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        private Command(Supplier<T> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public void run() {
+            try {
+                future.complete(supplier.get());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private static final class Shard implements Runnable {
+
+        private final RingBuffer<Runnable> ring;
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        private Shard(int index, int bufferSize) {
+            this.ring = new RingBuffer<>(bufferSize);
+            this.thread = new Thread(this, "order-sequencer-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (running) {
+                Runnable command = ring.poll();
+                if (command == null) {
+                    idle = backOff(idle);
+                    continue;
+                }
+                idle = 0;
+                command.run();
+            }
+            // drain anything accepted before shutdown
+            Runnable command;
+            while ((command = ring.poll()) != null) {
+                command.run();
+            }
+        }
+
+        private int backOff(int idle) {
+            if (idle < 100) {
+                Thread.onSpinWait();
+            } else if (idle < 200) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(50_000);
+            }
+            return idle + 1;
+        }
+    }
+
+}
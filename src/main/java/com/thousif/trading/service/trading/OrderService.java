@@ -1,5 +1,6 @@
 package com.thousif.trading.service.trading;
 
+import com.thousif.trading.dto.request.AmendOrderRequest;
 import com.thousif.trading.dto.request.OrderRequest;
 import com.thousif.trading.dto.response.OrderResponse;
 import com.thousif.trading.entity.Order;
@@ -14,21 +15,34 @@ import com.thousif.trading.exception.TradingPlatformException;
 import com.thousif.trading.metrics.OrderMetrics;
 import com.thousif.trading.repository.OrderRepository;
 import com.thousif.trading.service.auth.UserService;
-import com.thousif.trading.service.messaging.KafkaEventProducer;
-import com.thousif.trading.service.notification.NotificationService;
+import com.thousif.trading.service.expiry.OrderExpiryService;
+import com.thousif.trading.service.id.IdGenerator;
+import com.thousif.trading.service.journal.JournalProjector;
+import com.thousif.trading.service.journal.JournalRecord;
+import com.thousif.trading.service.journal.OrderJournal;
+import com.thousif.trading.service.ledger.AccountLedger;
+import com.thousif.trading.service.matching.Fill;
+import com.thousif.trading.service.matching.MatchingEngine;
+import com.thousif.trading.service.matching.OrderHandle;
+import com.thousif.trading.service.matching.OrderHandleIndex;
+import com.thousif.trading.service.matching.RestingOrder;
+import com.thousif.trading.service.matching.StopTriggerEngine;
+import com.thousif.trading.util.PriceScale;
 import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 @Service
 @Slf4j
@@ -38,52 +52,147 @@ public class OrderService {
     private final OrderRepository orderRepository;
     private final UserService userService;
     private final StockService stockService;
-    private final PortfolioService portfolioService;
-    private final NotificationService notificationService;
-    private final KafkaEventProducer kafkaEventProducer;
     private final OrderMetrics orderMetrics;
+    private final MatchingEngine matchingEngine;
+    private final StopTriggerEngine stopTriggerEngine;
+    private final OrderJournal orderJournal;
+    private final JournalProjector journalProjector;
+    private final IdGenerator idGenerator;
+    private final AccountLedger accountLedger;
+    private final OrderExpiryService orderExpiryService;
+    private final OrderHandleIndex orderHandleIndex;
 
-    @Transactional
+    private static final long PROJECTOR_WAIT_MILLIS = 2000;
+
+    @Value("${trading.market-orders.protection-percent:5}")
+    private BigDecimal protectionPercent;
+
+    // Read-only against MySQL: the journal append is the acknowledgement, the projector persists behind it
     public OrderResponse placeOrder(OrderRequest request, String username){
         log.info("Placing order for user: {}, stock: {}, type: {}, quantity: {}",
                 username, request.getStockSymbol(), request.getTransactionType(), request.getQuantity());
 
         Timer.Sample sample = orderMetrics.startExecutionTimer();
-        User user = userService.findByUsername(username);
+        AccountLedger.Account account = accountLedger.account(username);
         Stock stock = stockService.getStockBySymbol(request.getStockSymbol());
 
         //validate order
-        validateOrder(request, user, stock);
+        validateOrderParameters(request, stock);
+
+        Order order = buildOrder(request, accountUser(account), stock);
+        // funds and holdings are checked and reserved in memory, no database round trip
+        accountLedger.reserve(account, List.of(hold(order)));
+        append(List.of(order));
+
+        return executeAccepted(order, sample);
+    }
+
+    // Validates a basket against one user and holdings snapshot and journals it as a single group,
+    // which the projector inserts in one transaction. Nothing is accepted if any order fails.
+    public List<Order> acceptOrders(List<OrderRequest> requests, String username) {
+        log.info("Placing batch of {} order(s) for user: {}", requests.size(), username);
+
+        AccountLedger.Account account = accountLedger.account(username);
+        User user = accountUser(account);
+        Map<String, Stock> stocks = new HashMap<>();
+        List<Order> orders = new ArrayList<>(requests.size());
+        List<AccountLedger.Hold> holds = new ArrayList<>(requests.size());
+
+        for (int i = 0; i < requests.size(); i++) {
+            OrderRequest request = requests.get(i);
+            Stock stock = stocks.computeIfAbsent(request.getStockSymbol(), stockService::getStockBySymbol);
+            try {
+                validateOrderParameters(request, stock);
+                Order order = buildOrder(request, user, stock);
+                holds.add(hold(order));
+                orders.add(order);
+            } catch (OrderValidationException e) {
+                throw new OrderValidationException("Order " + (i + 1) + ": " + e.getMessage());
+            }
+        }
+
+        accountLedger.reserve(account, holds);
+        append(orders);
+        return orders;
+    }
+
+    private void append(List<Order> orders) {
+        List<JournalRecord> accepts = orders.stream().map(JournalRecord::accept).toList();
+        try {
+            if (accepts.size() == 1) {
+                orderJournal.append(accepts.get(0));
+            } else {
+                orderJournal.appendAll(accepts);
+            }
+        } catch (RuntimeException e) {
+            orders.forEach(order -> accountLedger.discard(order.getOrderId()));
+            throw e;
+        }
+    }
+
+    private AccountLedger.Hold hold(Order order) {
+        boolean buy = order.getTransactionType() == TransactionType.BUY;
+        long unitMargin = 0;
+        if (buy) {
+            BigDecimal price = switch (order.getOrderType()) {
+                // a market buy can trade up to its protection price
+                case MARKET -> protectionPrice(order);
+                case SL_M -> order.getTriggerPrice();
+                default -> order.getPrice();
+            };
+            if (price == null) {
+                throw new OrderValidationException("Unable to determine stock price");
+            }
+            unitMargin = PriceScale.toTicks(price);
+        }
+        return new AccountLedger.Hold(order.getOrderId(), order.getStock().getSymbol(), buy,
+                unitMargin, order.getQuantity());
+    }
+
+    // orders only carry who placed them, the projector attaches the managed user when persisting
+    private User accountUser(AccountLedger.Account account) {
+        return User.builder()
+                .id(account.getUserId())
+                .username(account.getUsername())
+                .build();
+    }
+
+    // routes an already journaled order, for batches this runs on the order's symbol shard
+    public OrderResponse executeAccepted(Order order) {
+        return executeAccepted(order, orderMetrics.startExecutionTimer());
+    }
 
-        //creating order
-        Order order = Order.builder()
-                .orderId(generateOrderId())
+    // an accepted order that could not be routed must not stay open without being in a book
+    public OrderResponse rejectAccepted(Order order, Throwable cause) {
+        order.setStatus(OrderStatus.REJECTED);
+        order.setRejectionReason("Order processing failed: " + cause.getMessage());
+        orderJournal.append(JournalRecord.reject(order.getOrderId(), order.getStock().getSymbol(),
+                order.getQuantity(), order.getRejectionReason()));
+        return mapToOrderResponse(order);
+    }
+
+    private Order buildOrder(OrderRequest request, User user, Stock stock) {
+        return Order.builder()
+                .orderId(idGenerator.nextOrderId())
                 .user(user)
                 .stock(stock)
                 .transactionType(request.getTransactionType())
                 .orderType(request.getOrderType())
                 .quantity(request.getQuantity())
-                .price(request.getPrice())
+                // an SL_M has no limit, its price is only ever the protection price set on trigger
+                .price(request.getOrderType() == OrderType.SL_M ? null : request.getPrice())
                 .triggerPrice(request.getTriggerPrice())
                 .validity(request.getValidity())
+                .goodTillDate(request.getGoodTillDate())
                 .disclosedQuantity(request.getDisclosedQuantity())
                 .notes(request.getNotes())
-                .status(OrderStatus.PENDING)
+                .status(request.getOrderType() == OrderType.MARKET ? OrderStatus.PENDING : OrderStatus.OPEN)
+                .createdAt(LocalDateTime.now())
                 .build();
+    }
 
-        order = orderRepository.save(order);
-
-        kafkaEventProducer.publishOrderEvent(
-                order.getOrderId(),
-                Map.of(
-                        "eventType", "ORDER_PLACED",
-                        "orderId", order.getOrderId(),
-                        "user", username,
-                        "symbol", order.getStock().getSymbol(),
-                        "side", order.getTransactionType().name(),
-                        "qty", order.getQuantity()
-                )
-        );
+    private OrderResponse executeAccepted(Order order, Timer.Sample sample) {
+        String username = order.getUser().getUsername();
 
         log.info("Order placed: id={} user={} symbol={} side={} qty={}",
                 order.getOrderId(), username,
@@ -93,9 +202,6 @@ public class OrderService {
         // Process order based on type
         processOrder(order);
 
-        // Send order confirmation email
-        notificationService.sendOrderPlacedNotifications(order);
-
         log.info("Order placed successfully: {}", order.getOrderId());
 
         orderMetrics.incrementOrderCreated();
@@ -104,7 +210,7 @@ public class OrderService {
         return mapToOrderResponse(order);
     }
 
-    private void validateOrder(OrderRequest request, User user, Stock stock){
+    private void validateOrderParameters(OrderRequest request, Stock stock){
         //validating type and price
         if(request.getOrderType() == OrderType.LIMIT && request.getPrice() == null){
             throw new OrderValidationException("Price is required for LIMIT orders");
@@ -115,139 +221,119 @@ public class OrderService {
             throw new OrderValidationException("Trigger price is required for Stop Loss orders");
         }
 
-        // Checking funds for buy orders
-        if(request.getTransactionType() == TransactionType.BUY){
-            BigDecimal requiredFunds = calculateRequiredFunds(request, stock);
-            if(user.getFreeMargin().compareTo(requiredFunds) < 0){
-                throw new InsufficientFundsException(
-                        String.format("Insufficient funds. Required: ₹%s, Available: ₹%s",
-                                requiredFunds, user.getFreeMargin()));
-            }
+        if (request.getOrderType() == OrderType.SL && request.getPrice() == null) {
+            throw new OrderValidationException("Price is required for SL orders");
         }
 
-        // Check holdings for sell orders
-        if (request.getTransactionType() == TransactionType.SELL) {
-            Integer availableQuantity = portfolioService.getAvailableQuantity(user, stock);
-            if (availableQuantity < request.getQuantity()) {
-                throw new OrderValidationException(
-                        String.format("Insufficient stocks to sell. Available: %d, Requested: %d",
-                                availableQuantity, request.getQuantity()));
+        if (request.getDisclosedQuantity() != null && request.getDisclosedQuantity() > 0) {
+            if (request.getOrderType() == OrderType.MARKET || request.getOrderType() == OrderType.SL_M) {
+                throw new OrderValidationException("Disclosed quantity is only allowed on LIMIT and SL orders");
+            }
+            if (request.getDisclosedQuantity() > request.getQuantity()) {
+                throw new OrderValidationException("Disclosed quantity cannot exceed order quantity");
             }
         }
 
+        if ("GTD".equals(request.getValidity()) && request.getGoodTillDate() == null) {
+            throw new OrderValidationException("Good till date is required for GTD orders");
+        }
+
         // Validate stock is active
         if (!stock.isActive()) {
             throw new OrderValidationException("Stock is not available for trading");
         }
     }
 
-    private BigDecimal calculateRequiredFunds(OrderRequest request, Stock stock){
-        BigDecimal price = request.getOrderType() == OrderType.MARKET
-                ? stock.getCurrentPrice() : request.getPrice();
-
-        if(price == null){
-            throw new OrderValidationException("Unable to determine stock price");
-        }
-        return price.multiply(new BigDecimal(request.getQuantity()));
-    }
-
-    private String generateOrderId(){
-        return "ORD-" + System.currentTimeMillis() + "-" + UUID.randomUUID().toString().substring(0,8).toUpperCase();
-    }
-
     private void processOrder(Order order){
         try{
             if(order.getOrderType() == OrderType.MARKET){
                 // Execute market order immediately
                 executeMarketOrder(order);
             }
+            else if(order.getOrderType() == OrderType.LIMIT){
+                // Limit orders go straight into the in-memory book, fills are journaled as they match
+                List<Fill> fills = matchingEngine.submit(order);
+                applyFills(order, fills);
+                int remaining = order.getQuantity() - executedQuantity(order);
+                if (remaining == 0) {
+                    log.info("Order {} fully matched on entry", order.getOrderId());
+                } else if ("IOC".equals(order.getValidity())) {
+                    // the matching engine already journaled the cancel of the remainder
+                    order.setStatus(OrderStatus.CANCELLED);
+                    log.info("IOC order {} cancelled with {} unfilled", order.getOrderId(), remaining);
+                } else {
+                    orderExpiryService.schedule(order);
+                    log.info("Order {} placed in order book", order.getOrderId());
+                }
+            }
             else{
-                order.setStatus(OrderStatus.OPEN);
-                orderRepository.save(order);
-
-                // Block margin for the order
-                blockMarginForOrder(order);
-                log.info("Order {} placed in order book", order.getOrderId());
+                // Stop orders wait in the trigger index until a tick crosses their trigger price
+                stopTriggerEngine.register(order);
+                orderExpiryService.schedule(order);
+                log.info("Stop order {} waiting for trigger {}", order.getOrderId(), order.getTriggerPrice());
             }
         }
         catch (Exception e) {
             log.error("Error processing order: {}", order.getOrderId(), e);
             order.setStatus(OrderStatus.REJECTED);
             order.setRejectionReason("Order processing failed: " + e.getMessage());
-            orderRepository.save(order);
+            orderJournal.append(JournalRecord.reject(order.getOrderId(), order.getStock().getSymbol(),
+                    order.getQuantity() - executedQuantity(order), order.getRejectionReason()));
         }
     }
 
-    @Transactional
-    private void executeMarketOrder(Order order){
-        try{
-            //get current market price
-            BigDecimal executionPrice = order.getStock().getCurrentPrice();
-            if (executionPrice == null) {
-                throw new OrderValidationException("Market price not available");
-            }
-
-            //set executed price
-            order.setExecutedPrice(executionPrice);
-            order.setExecutedQuantity(order.getQuantity());
-            order.setStatus(OrderStatus.COMPLETE);
-            order.setExecutedAt(LocalDateTime.now());
-            orderRepository.save(order);
-
-            // Update portfolio
-            portfolioService.updatePortfolioOnExecution(
-                    order.getUser(),
-                    order.getStock(),
-                    order.getQuantity(),
-                    executionPrice,
-                    order.getTransactionType().name()
-            );
-
-            // Update user balance
-            updateUserBalanceOnExecution(order);
-
-            // Send execution notification email
-            notificationService.sendOrderExecutedNotifications(order, executionPrice);
-
-            orderMetrics.incrementOrderExecuted();
-
-            log.info("Market order executed: {} at price {}", order.getOrderId(), executionPrice);
+    // reflects the fills made on entry in the response, the projector settles them from the journal
+    private void applyFills(Order order, List<Fill> fills) {
+        if (fills.isEmpty()) {
+            return;
         }
-        catch(Exception e){
-            log.error("Failed to execute market order: {}", order.getOrderId(), e);
-            order.setStatus(OrderStatus.REJECTED);
-            order.setRejectionReason("Execution failed: " + e.getMessage());
-            orderRepository.save(order);
+        int executed = executedQuantity(order);
+        long value = order.getExecutedPrice() != null
+                ? PriceScale.toTicks(order.getExecutedPrice()) * executed
+                : 0L;
+        for (Fill fill : fills) {
+            executed += fill.quantity();
+            value += fill.price() * fill.quantity();
         }
+        order.setExecutedQuantity(executed);
+        order.setExecutedPrice(PriceScale.fromTicks(value)
+                .divide(new BigDecimal(executed), PriceScale.SCALE, RoundingMode.HALF_UP));
+        order.setExecutedAt(LocalDateTime.now());
+        order.setStatus(executed >= order.getQuantity() ? OrderStatus.COMPLETE : OrderStatus.PARTIAL);
     }
 
-    private void updateUserBalanceOnExecution(Order order){
-        User user = order.getUser();
-        BigDecimal executionValue = order.getExecutedPrice().multiply(new BigDecimal(order.getExecutedQuantity()));
-        if(order.getTransactionType() == TransactionType.BUY){
-            // Deduct money for buy orders
-            user.setAvailableBalance(user.getAvailableBalance().subtract(executionValue));
-        }
-        else{
-            // Add money for sell orders
-            user.setAvailableBalance(user.getAvailableBalance().add(executionValue));
+    private void executeMarketOrder(Order order){
+        BigDecimal protectionPrice = protectionPrice(order);
+        List<Fill> fills = matchingEngine.sweep(order, PriceScale.toTicks(protectionPrice));
+
+        // portfolio and balance are settled by the journal projector
+        applyFills(order, fills);
+        int unfilled = order.getQuantity() - executedQuantity(order);
+        if (unfilled > 0) {
+            // the matching engine already journaled the cancel of the remainder
+            order.setStatus(OrderStatus.CANCELLED);
+            log.info("Market order {} cancelled with {} unfilled, no liquidity within {}",
+                    order.getOrderId(), unfilled, protectionPrice);
+        } else {
+            log.info("Market order executed: {} at average price {} over {} fill(s)",
+                    order.getOrderId(), order.getExecutedPrice(), fills.size());
         }
-        userService.updateBalance(user.getUsername(), BigDecimal.ZERO);
     }
 
-    private void blockMarginForOrder(Order order){
-        if(order.getTransactionType() == TransactionType.BUY){
-            BigDecimal requiredMargin = calculateRequiredFunds(
-                    OrderRequest.builder()
-                            .orderType(order.getOrderType())
-                            .quantity(order.getQuantity())
-                            .price(order.getPrice())
-                            .build(),
-                    order.getStock());
-            User user = order.getUser();
-            user.setUsedMargin(user.getUsedMargin().add(requiredMargin));
-            userService.updateBalance(user.getUsername(), BigDecimal.ZERO);
+    // the furthest a market order may trade from the last traded price
+    private BigDecimal protectionPrice(Order order) {
+        BigDecimal lastPrice = order.getStock().getCurrentPrice();
+        if (lastPrice == null) {
+            throw new OrderValidationException("Market price not available");
         }
+        return protectionPrice(lastPrice, order.getTransactionType());
+    }
+
+    private BigDecimal protectionPrice(BigDecimal lastPrice, TransactionType side) {
+        BigDecimal band = protectionPercent.movePointLeft(2);
+        return side == TransactionType.BUY
+                ? lastPrice.multiply(BigDecimal.ONE.add(band)).setScale(PriceScale.SCALE, RoundingMode.FLOOR)
+                : lastPrice.multiply(BigDecimal.ONE.subtract(band)).setScale(PriceScale.SCALE, RoundingMode.CEILING);
     }
 
     public List<OrderResponse> getUserOrders(String username) {
@@ -263,8 +349,7 @@ public class OrderService {
     }
 
     public OrderResponse getOrderById(String orderId, String username) {
-        Order order = orderRepository.findByOrderId(orderId)
-                .orElseThrow(() -> new TradingPlatformException("Order not found"));
+        Order order = findOrder(orderId);
 
         if (!order.getUser().getUsername().equals(username)) {
             throw new TradingPlatformException("Access denied");
@@ -273,47 +358,238 @@ public class OrderService {
         return mapToOrderResponse(order);
     }
 
-    @Transactional
+    // Served from the in-memory handle index and the book, MySQL is only read to explain a refusal
     public OrderResponse cancelOrder(String orderId, String username) {
-        Order order = orderRepository.findByOrderId(orderId)
-                .orElseThrow(() -> new TradingPlatformException("Order not found"));
+        OrderHandle handle = openHandle(orderId, username);
 
-        if (!order.getUser().getUsername().equals(username)) {
-            throw new TradingPlatformException("Access denied");
+        // market orders execute on placement
+        if (handle.getOrderType() == OrderType.MARKET) {
+            throw new TradingPlatformException("Order already executed: " + orderId);
         }
 
-        if (order.getStatus() != OrderStatus.OPEN && order.getStatus() != OrderStatus.PENDING) {
-            throw new TradingPlatformException("Cannot cancel order in current status: " + order.getStatus());
+        String symbol = handle.getSymbol();
+        int remainingQuantity = handle.getRemaining();
+        RestingOrder resting = matchingEngine.cancel(symbol, orderId);
+        if (resting != null) {
+            remainingQuantity = resting.getRemaining();
+        } else if (!stopTriggerEngine.cancel(symbol, orderId)) {
+            throw new TradingPlatformException("Order already executed: " + orderId);
         }
 
-        order.setStatus(OrderStatus.CANCELLED);
-        order = orderRepository.save(order);
-
-        // Release blocked margin
-        releaseBlockedMargin(order);
+        // status and margin release are applied by the journal projector
+        orderJournal.append(JournalRecord.cancel(orderId, symbol, remainingQuantity));
 
         log.info("Order cancelled: {}", orderId);
 
         orderMetrics.incrementOrderCancelled();
 
-        return mapToOrderResponse(order);
+        OrderResponse response = mapToOrderResponse(handle);
+        response.setStatus(OrderStatus.CANCELLED);
+        response.setRemainingQuantity(remainingQuantity);
+        return response;
+    }
+
+    // Pulls every open order of the user, or only those in one symbol, out of the books and journals
+    // the cancels as one group: one ledger update and one bulk status update when projected
+    public List<OrderResponse> cancelOrders(String username, String symbol) {
+        AccountLedger.Account account = accountLedger.account(username);
+        List<OrderHandle> handles = orderHandleIndex.forUser(account.getUserId(), symbol);
+
+        List<JournalRecord> cancels = new ArrayList<>(handles.size());
+        List<OrderResponse> responses = new ArrayList<>(handles.size());
+        for (OrderHandle handle : handles) {
+            if (handle.getOrderType() == OrderType.MARKET) {
+                continue;
+            }
+            int remainingQuantity = handle.getRemaining();
+            RestingOrder resting = matchingEngine.cancel(handle.getSymbol(), handle.getOrderId());
+            if (resting != null) {
+                remainingQuantity = resting.getRemaining();
+            } else if (!stopTriggerEngine.cancel(handle.getSymbol(), handle.getOrderId())) {
+                // filled or being activated in the meantime
+                continue;
+            }
+            cancels.add(JournalRecord.cancel(handle.getOrderId(), handle.getSymbol(), remainingQuantity));
+
+            OrderResponse response = mapToOrderResponse(handle);
+            response.setStatus(OrderStatus.CANCELLED);
+            response.setRemainingQuantity(remainingQuantity);
+            responses.add(response);
+        }
+
+        if (!cancels.isEmpty()) {
+            orderJournal.appendAll(cancels);
+            cancels.forEach(cancel -> orderMetrics.incrementOrderCancelled());
+        }
+        log.info("Cancelled {} open order(s) for user: {}, symbol: {}", cancels.size(), username,
+                symbol != null ? symbol : "all");
+        return responses;
+    }
+
+    // Changes the limit price and / or total quantity of an open order. A pure quantity reduction keeps
+    // the order's place in the queue, anything else re-queues it and it may match straight away.
+    public OrderResponse amendOrder(String orderId, AmendOrderRequest request, String username) {
+        OrderHandle handle = openHandle(orderId, username);
+
+        if (handle.getOrderType() == OrderType.MARKET) {
+            throw new TradingPlatformException("Order already executed: " + orderId);
+        }
+        if (request.getPrice() == null && request.getQuantity() == null) {
+            throw new OrderValidationException("Price or quantity is required to amend an order");
+        }
+        if (request.getPrice() != null && handle.getOrderType() == OrderType.SL_M) {
+            throw new OrderValidationException("Price cannot be set on SL_M orders");
+        }
+
+        String symbol = handle.getSymbol();
+        long price = request.getPrice() != null ? PriceScale.toTicks(request.getPrice()) : 0L;
+        AccountLedger.Account account = accountLedger.account(handle.getUserId());
+
+        List<Fill> fills = matchingEngine.amend(symbol, orderId, price,
+                resting -> checkAmend(account, orderId, price, request, resting.getFilledQuantity(),
+                        resting.getQuantity(), resting.getPrice()));
+        if (fills == null) {
+            // not in the book: an untriggered stop, amended while it is held back from triggering
+            boolean pending = stopTriggerEngine.whilePending(symbol, orderId, () -> {
+                int remaining = checkAmend(account, orderId, price, request, handle.getFilledQuantity(),
+                        handle.getQuantity(), handle.getPrice());
+                orderJournal.append(JournalRecord.amend(orderId, symbol, remaining, price));
+            });
+            if (!pending) {
+                throw new TradingPlatformException("Order is no longer open: " + orderId);
+            }
+            fills = List.of();
+        }
+
+        log.info("Order amended: id={} price={} quantity={}", orderId, request.getPrice(), request.getQuantity());
+
+        OrderResponse response = mapToOrderResponse(handle);
+        if (!fills.isEmpty()) {
+            response.setStatus(handle.getRemaining() > 0 ? OrderStatus.PARTIAL : OrderStatus.COMPLETE);
+        }
+        return response;
     }
 
-    private void releaseBlockedMargin(Order order) {
-        if (order.getTransactionType() == TransactionType.BUY && order.getStatus() == OrderStatus.CANCELLED) {
-            BigDecimal blockedMargin = calculateRequiredFunds(
-                    OrderRequest.builder()
-                            .orderType(order.getOrderType())
-                            .quantity(order.getQuantity())
-                            .price(order.getPrice())
-                            .build(),
-                    order.getStock()
-            );
-
-            User user = order.getUser();
-            user.setUsedMargin(user.getUsedMargin().subtract(blockedMargin).max(BigDecimal.ZERO));
-            userService.updateBalance(user.getUsername(), BigDecimal.ZERO); // Save user
+    // validates the amend against the order's current fills and resizes its ledger reservation
+    private int checkAmend(AccountLedger.Account account, String orderId, long price, AmendOrderRequest request,
+                           int filled, int quantity, long currentPrice) {
+        int remaining = amendedRemaining(request, orderId, filled, quantity);
+        if (remaining == quantity - filled && (price == 0 || price == currentPrice)) {
+            throw new OrderValidationException("Amendment does not change the order");
         }
+        accountLedger.amend(account, orderId, price, remaining);
+        return remaining;
+    }
+
+    private int amendedRemaining(AmendOrderRequest request, String orderId, int filled, int quantity) {
+        int newQuantity = request.getQuantity() != null ? request.getQuantity() : quantity;
+        if (newQuantity <= filled) {
+            throw new OrderValidationException(String.format(
+                    "Quantity must exceed the %d already executed for order %s", filled, orderId));
+        }
+        return newQuantity - filled;
+    }
+
+    private OrderHandle openHandle(String orderId, String username) {
+        OrderHandle handle = orderHandleIndex.get(orderId);
+        if (handle == null) {
+            Order order = findOrder(orderId);
+            if (!order.getUser().getUsername().equals(username)) {
+                throw new TradingPlatformException("Access denied");
+            }
+            throw new TradingPlatformException("Order is no longer open: " + orderId);
+        }
+        if (!handle.getUsername().equals(username)) {
+            throw new TradingPlatformException("Access denied");
+        }
+        return handle;
+    }
+
+    // Runs on the symbol's sequencer shard. Everything comes from the handle index and the triggering
+    // price, a database read here would stall every other order on the shard.
+    public void activateStopOrder(String orderId, long lastPrice) {
+        OrderHandle handle = orderHandleIndex.get(orderId);
+        if (handle == null) {
+            log.debug("Skipping stop activation for {}, no longer open", orderId);
+            return;
+        }
+        String symbol = handle.getSymbol();
+        boolean market = handle.getOrderType() == OrderType.SL_M;
+
+        try {
+            // amendments are already reflected in the handle
+            long price = handle.getPrice();
+            List<JournalRecord> records = new ArrayList<>(2);
+            records.add(JournalRecord.trigger(orderId, symbol));
+            if (market) {
+                price = PriceScale.toTicks(protectionPrice(PriceScale.fromTicks(lastPrice), handle.getSide()));
+                if (handle.getSide() == TransactionType.BUY) {
+                    price = reserveSweep(handle, price, records);
+                }
+            }
+            orderJournal.appendAll(records);
+            RestingOrder incoming = new RestingOrder(orderId, symbol, handle.getUsername(), handle.getSide(),
+                    handle.getOrderType(), price, handle.getQuantity(), handle.getRemaining(),
+                    handle.getDisclosedQuantity());
+            matchingEngine.submit(incoming, market || "IOC".equals(handle.getValidity()));
+        } catch (Exception e) {
+            log.error("Failed to execute stop order: {}", orderId, e);
+            orderJournal.append(JournalRecord.reject(orderId, symbol, handle.getRemaining(),
+                    "Execution failed: " + e.getMessage()));
+            return;
+        }
+
+        log.info("Stop order {} activated as {}", orderId, market ? "market" : "limit");
+    }
+
+    // An SL_M buy is margined at its trigger price but sweeps up to the protection price. The reservation
+    // is raised to the protection price, journaled as an amend, or if the account cannot cover that the
+    // sweep is capped at the trigger price it is margined at.
+    private long reserveSweep(OrderHandle handle, long protectionPrice, List<JournalRecord> records) {
+        if (protectionPrice <= handle.getTriggerPrice()) {
+            return protectionPrice;
+        }
+        try {
+            accountLedger.amend(accountLedger.account(handle.getUserId()), handle.getOrderId(),
+                    protectionPrice, handle.getRemaining());
+        } catch (InsufficientFundsException e) {
+            log.info("Stop order {} swept only up to its trigger price {}, {}",
+                    handle.getOrderId(), handle.getTriggerPrice(), e.getMessage());
+            return handle.getTriggerPrice();
+        }
+        records.add(JournalRecord.amend(handle.getOrderId(), handle.getSymbol(), handle.getRemaining(),
+                protectionPrice));
+        return protectionPrice;
+    }
+
+    // the projector may still be behind for an order that was just accepted
+    private Order findOrder(String orderId) {
+        return orderRepository.findDetailedByOrderId(orderId)
+                .or(() -> {
+                    journalProjector.awaitCaughtUp(PROJECTOR_WAIT_MILLIS);
+                    return orderRepository.findDetailedByOrderId(orderId);
+                })
+                .orElseThrow(() -> new TradingPlatformException("Order not found"));
+    }
+
+    private int executedQuantity(Order order) {
+        return order.getExecutedQuantity() != null ? order.getExecutedQuantity() : 0;
+    }
+
+    private OrderResponse mapToOrderResponse(OrderHandle handle) {
+        return OrderResponse.builder()
+                .orderId(handle.getOrderId())
+                .stockSymbol(handle.getSymbol())
+                .transactionType(handle.getSide())
+                .orderType(handle.getOrderType())
+                .quantity(handle.getQuantity())
+                .price(handle.getPrice() > 0 ? PriceScale.fromTicks(handle.getPrice()) : null)
+                .triggerPrice(handle.getTriggerPrice() > 0 ? PriceScale.fromTicks(handle.getTriggerPrice()) : null)
+                .executedQuantity(handle.getFilledQuantity())
+                .remainingQuantity(handle.getRemaining())
+                .status(handle.getFilledQuantity() > 0 ? OrderStatus.PARTIAL : OrderStatus.OPEN)
+                .validity(handle.getValidity())
+                .build();
     }
 
     private OrderResponse mapToOrderResponse(Order order) {
@@ -331,6 +607,7 @@ public class OrderService {
                 .executedQuantity(order.getExecutedQuantity())
                 .status(order.getStatus())
                 .validity(order.getValidity())
+                .goodTillDate(order.getGoodTillDate())
                 .disclosedQuantity(order.getDisclosedQuantity())
                 .triggerPrice(order.getTriggerPrice())
                 .notes(order.getNotes())
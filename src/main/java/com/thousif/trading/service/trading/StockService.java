@@ -6,9 +6,12 @@ import com.thousif.trading.repository.StockRepository;
 import com.thousif.trading.service.cache.CacheService;
 import com.thousif.trading.service.external.AlphaVantageService;
 import com.thousif.trading.service.external.KiteConnectService;
+import com.thousif.trading.service.market.PriceTickEvent;
+import com.thousif.trading.util.PriceScale;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
@@ -25,6 +28,7 @@ public class StockService {
     private final AlphaVantageService alphaVantageService;
     private final KiteConnectService kiteConnectService;
     private final CacheService cacheService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Cacheable(value = "stocks", key = "#symbol")
     public Stock getStockBySymbol(String symbol) {
@@ -89,6 +93,12 @@ public class StockService {
             stock.setCurrentPrice(priceData.get("price"));
             stock = stockRepository.save(stock);
             log.debug("Updated price for {}: {}", symbol, priceData.get("price"));
+
+            eventPublisher.publishEvent(new PriceTickEvent(
+                    symbol,
+                    PriceScale.toTicks(stock.getCurrentPrice()),
+                    stock.getVolume() != null ? stock.getVolume() : 0L,
+                    System.currentTimeMillis()));
         }
         return stock;
     }
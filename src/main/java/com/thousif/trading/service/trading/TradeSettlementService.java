@@ -0,0 +1,337 @@
+package com.thousif.trading.service.trading;
+
+import com.thousif.trading.entity.Order;
+import com.thousif.trading.entity.User;
+import com.thousif.trading.enums.OrderStatus;
+import com.thousif.trading.enums.OrderType;
+import com.thousif.trading.enums.TransactionType;
+import com.thousif.trading.metrics.OrderMetrics;
+import com.thousif.trading.repository.OrderRepository;
+import com.thousif.trading.repository.StockRepository;
+import com.thousif.trading.repository.UserRepository;
+import com.thousif.trading.service.journal.JournalRecord;
+import com.thousif.trading.service.journal.JournalRecordType;
+import com.thousif.trading.service.messaging.KafkaEventProducer;
+import com.thousif.trading.service.notification.NotificationService;
+import com.thousif.trading.util.PriceScale;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Applies journaled order events to orders, portfolios and balances. Only called by the
+// journal projector, inside its transaction, so it is the single writer for these rows.
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class TradeSettlementService {
+
+    private final OrderRepository orderRepository;
+    private final UserRepository userRepository;
+    private final StockRepository stockRepository;
+    private final PortfolioService portfolioService;
+    private final NotificationService notificationService;
+    private final KafkaEventProducer kafkaEventProducer;
+    private final OrderMetrics orderMetrics;
+
+    public void applyAll(List<JournalRecord> records) {
+        // one lookup for the whole batch, a query between inserts would flush and break JDBC batching
+        List<String> accepted = records.stream()
+                .filter(record -> record.getType() == JournalRecordType.ACCEPT)
+                .map(JournalRecord::getOrderId)
+                .toList();
+        Set<String> existing = accepted.isEmpty()
+                ? Set.of()
+                : orderRepository.findExistingOrderIds(accepted);
+
+        List<JournalRecord> cancels = new ArrayList<>();
+        for (JournalRecord record : records) {
+            if (record.getType() == JournalRecordType.CANCEL) {
+                cancels.add(record);
+                continue;
+            }
+            cancelAll(cancels);
+            apply(record, existing);
+        }
+        cancelAll(cancels);
+    }
+
+    // A run of cancels, e.g. a mass cancel or an expiry batch, is one bulk status update and one
+    // margin update per user instead of a load and save of every order and its user
+    private void cancelAll(List<JournalRecord> cancels) {
+        if (cancels.size() <= 1) {
+            cancels.forEach(this::cancel);
+            cancels.clear();
+            return;
+        }
+
+        Map<String, JournalRecord> byOrderId = new HashMap<>(cancels.size() * 2);
+        cancels.forEach(record -> byOrderId.put(record.getOrderId(), record));
+
+        List<String> found = new ArrayList<>(cancels.size());
+        Map<Long, BigDecimal> margins = new HashMap<>();
+        for (Order order : orderRepository.findByOrderIdIn(byOrderId.keySet())) {
+            found.add(order.getOrderId());
+            BigDecimal margin = blockedMargin(order, byOrderId.get(order.getOrderId()).getQuantity());
+            if (margin.signum() > 0) {
+                margins.merge(order.getUser().getId(), margin, BigDecimal::add);
+            }
+        }
+        if (found.size() < cancels.size()) {
+            log.warn("Cancel for {} unknown order(s)", cancels.size() - found.size());
+        }
+
+        if (!found.isEmpty()) {
+            orderRepository.updateStatus(found, OrderStatus.CANCELLED, LocalDateTime.now());
+        }
+        margins.forEach(userRepository::releaseMargin);
+        for (String orderId : found) {
+            publishStatusEvent("ORDER_CANCELLED", byOrderId.get(orderId));
+        }
+        log.info("Cancelled {} order(s) in bulk", found.size());
+        cancels.clear();
+    }
+
+    private void apply(JournalRecord record, Set<String> existing) {
+        switch (record.getType()) {
+            case ACCEPT -> {
+                if (!existing.contains(record.getOrderId())) {
+                    accept(record);
+                }
+            }
+            case FILL -> fill(record);
+            case CANCEL -> cancel(record);
+            case REJECT -> reject(record);
+            case AMEND -> amend(record);
+            case TRIGGER -> log.debug("Stop order {} triggered", record.getOrderId());
+        }
+    }
+
+    private void accept(JournalRecord record) {
+        User user = userRepository.getReferenceById(record.getUserId());
+        Order order = Order.builder()
+                .orderId(record.getOrderId())
+                .user(user)
+                .stock(stockRepository.getReferenceById(record.getStockId()))
+                .transactionType(record.getTransactionType())
+                .orderType(record.getOrderType())
+                .quantity(record.getQuantity())
+                .price(record.getPrice() > 0 ? PriceScale.fromTicks(record.getPrice()) : null)
+                .triggerPrice(record.getTriggerPrice() > 0 ? PriceScale.fromTicks(record.getTriggerPrice()) : null)
+                .validity(record.getValidity())
+                .goodTillDate(record.getGoodTillDate() > 0 ? LocalDate.ofEpochDay(record.getGoodTillDate()) : null)
+                .disclosedQuantity(record.getDisclosedQuantity())
+                .notes(record.getNotes())
+                .status(record.getOrderType() == OrderType.MARKET ? OrderStatus.PENDING : OrderStatus.OPEN)
+                .build();
+        orderRepository.save(order);
+        notificationService.enqueueOrderPlaced(record.getUserId(), record.getOrderId(), record.getSymbol(),
+                record.getTransactionType(), record.getQuantity(), order.getPrice());
+        kafkaEventProducer.publishOrderEvent(
+                record.getOrderId(),
+                Map.of(
+                        "eventType", "ORDER_PLACED",
+                        "orderId", record.getOrderId(),
+                        "user", record.getUsername(),
+                        "symbol", record.getSymbol(),
+                        "side", record.getTransactionType().name(),
+                        "qty", record.getQuantity()
+                )
+        );
+
+        BigDecimal margin = blockedMargin(order, order.getQuantity());
+        if (margin.signum() > 0) {
+            user.setUsedMargin(user.getUsedMargin().add(margin));
+            userRepository.save(user);
+        }
+    }
+
+    private void fill(JournalRecord record) {
+        BigDecimal price = PriceScale.fromTicks(record.getPrice());
+        LocalDateTime executedAt = toLocalDateTime(record.getTimestamp());
+        if (record.getBuyOrderId() != null) {
+            applyExecution(record.getBuyOrderId(), record.getQuantity(), price, executedAt);
+        }
+        if (record.getSellOrderId() != null) {
+            applyExecution(record.getSellOrderId(), record.getQuantity(), price, executedAt);
+        }
+    }
+
+    private void cancel(JournalRecord record) {
+        Order order = orderRepository.findByOrderId(record.getOrderId()).orElse(null);
+        if (order == null) {
+            log.warn("Cancel for unknown order: {}", record.getOrderId());
+            return;
+        }
+        order.setStatus(OrderStatus.CANCELLED);
+        orderRepository.save(order);
+        releaseMargin(order, record.getQuantity());
+        publishStatusEvent("ORDER_CANCELLED", record);
+    }
+
+    private void amend(JournalRecord record) {
+        Order order = orderRepository.findByOrderId(record.getOrderId()).orElse(null);
+        if (order == null) {
+            log.warn("Amend for unknown order: {}", record.getOrderId());
+            return;
+        }
+        int executed = order.getExecutedQuantity() != null ? order.getExecutedQuantity() : 0;
+        BigDecimal previousMargin = blockedMargin(order, order.getQuantity() - executed);
+
+        order.setQuantity(executed + record.getQuantity());
+        if (record.getPrice() > 0) {
+            order.setPrice(PriceScale.fromTicks(record.getPrice()));
+        }
+        orderRepository.save(order);
+
+        BigDecimal marginChange = blockedMargin(order, record.getQuantity()).subtract(previousMargin);
+        if (marginChange.signum() != 0) {
+            User user = order.getUser();
+            user.setUsedMargin(user.getUsedMargin().add(marginChange).max(BigDecimal.ZERO));
+            userRepository.save(user);
+        }
+
+        kafkaEventProducer.publishOrderEvent(
+                record.getOrderId(),
+                Map.of(
+                        "eventType", "ORDER_AMENDED",
+                        "orderId", record.getOrderId(),
+                        "symbol", record.getSymbol(),
+                        "qty", order.getQuantity(),
+                        "price", order.getPrice() != null ? order.getPrice() : BigDecimal.ZERO,
+                        "remainingQty", record.getQuantity()
+                )
+        );
+    }
+
+    private void reject(JournalRecord record) {
+        Order order = orderRepository.findByOrderId(record.getOrderId()).orElse(null);
+        if (order == null) {
+            log.warn("Reject for unknown order: {}", record.getOrderId());
+            return;
+        }
+        order.setStatus(OrderStatus.REJECTED);
+        order.setRejectionReason(record.getReason());
+        orderRepository.save(order);
+        releaseMargin(order, record.getQuantity());
+        publishStatusEvent("ORDER_REJECTED", record);
+    }
+
+    private void applyExecution(String orderId, int quantity, BigDecimal price, LocalDateTime executedAt) {
+        Order order = orderRepository.findByOrderId(orderId).orElse(null);
+        if (order == null) {
+            log.warn("Fill for unknown order: {}", orderId);
+            return;
+        }
+
+        int previouslyExecuted = order.getExecutedQuantity() != null ? order.getExecutedQuantity() : 0;
+        int executed = previouslyExecuted + quantity;
+
+        BigDecimal averagePrice = price;
+        if (order.getExecutedPrice() != null && previouslyExecuted > 0) {
+            averagePrice = order.getExecutedPrice().multiply(new BigDecimal(previouslyExecuted))
+                    .add(price.multiply(new BigDecimal(quantity)))
+                    .divide(new BigDecimal(executed), PriceScale.SCALE, RoundingMode.HALF_UP);
+        }
+
+        order.setExecutedQuantity(executed);
+        order.setExecutedPrice(averagePrice);
+        order.setExecutedAt(executedAt);
+        // a cancel may have landed after the match, keep the user's final status
+        if (order.getStatus() != OrderStatus.CANCELLED) {
+            order.setStatus(executed >= order.getQuantity() ? OrderStatus.COMPLETE : OrderStatus.PARTIAL);
+        }
+        orderRepository.save(order);
+
+        portfolioService.updatePortfolioOnExecution(
+                order.getUser(),
+                order.getStock(),
+                quantity,
+                price,
+                order.getTransactionType().name()
+        );
+
+        User user = order.getUser();
+        BigDecimal tradeValue = price.multiply(new BigDecimal(quantity));
+        if (order.getTransactionType() == TransactionType.BUY) {
+            // release the margin blocked for this quantity, then debit the traded value
+            BigDecimal margin = blockedMargin(order, quantity);
+            user.setUsedMargin(user.getUsedMargin().subtract(margin).max(BigDecimal.ZERO));
+            user.setAvailableBalance(user.getAvailableBalance().subtract(tradeValue));
+        } else {
+            user.setAvailableBalance(user.getAvailableBalance().add(tradeValue));
+        }
+        userRepository.save(user);
+
+        kafkaEventProducer.publishOrderEvent(
+                orderId,
+                Map.of(
+                        "eventType", "ORDER_FILLED",
+                        "orderId", orderId,
+                        "qty", quantity,
+                        "price", price,
+                        "executedQty", executed,
+                        "status", order.getStatus().name()
+                )
+        );
+
+        if (order.getStatus() == OrderStatus.COMPLETE) {
+            orderMetrics.incrementOrderExecuted();
+            notificationService.enqueueOrderExecuted(order, averagePrice);
+        }
+
+        log.info("Order {} filled {} @ {} ({} / {})",
+                orderId, quantity, price, executed, order.getQuantity());
+    }
+
+    private void publishStatusEvent(String eventType, JournalRecord record) {
+        kafkaEventProducer.publishOrderEvent(
+                record.getOrderId(),
+                Map.of(
+                        "eventType", eventType,
+                        "orderId", record.getOrderId(),
+                        "symbol", record.getSymbol(),
+                        "remainingQty", record.getQuantity()
+                )
+        );
+    }
+
+    private void releaseMargin(Order order, int quantity) {
+        BigDecimal margin = blockedMargin(order, quantity);
+        if (margin.signum() > 0) {
+            User user = order.getUser();
+            user.setUsedMargin(user.getUsedMargin().subtract(margin).max(BigDecimal.ZERO));
+            userRepository.save(user);
+        }
+    }
+
+    // margin is blocked for resting buy orders at the price they can execute at
+    private BigDecimal blockedMargin(Order order, int quantity) {
+        if (order.getTransactionType() != TransactionType.BUY) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal price = switch (order.getOrderType()) {
+            case MARKET -> null;
+            // raised to the protection price by an amend when it triggers
+            case SL_M -> order.getPrice() != null ? order.getPrice() : order.getTriggerPrice();
+            default -> order.getPrice();
+        };
+        return price != null ? price.multiply(new BigDecimal(quantity)) : BigDecimal.ZERO;
+    }
+
+    private LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+}
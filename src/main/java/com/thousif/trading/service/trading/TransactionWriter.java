@@ -0,0 +1,273 @@
+package com.thousif.trading.service.trading;
+
+import com.thousif.trading.entity.JournalCheckpoint;
+import com.thousif.trading.entity.JournalDeadLetter;
+import com.thousif.trading.exception.TradingPlatformException;
+import com.thousif.trading.repository.JournalCheckpointRepository;
+import com.thousif.trading.repository.JournalDeadLetterRepository;
+import com.thousif.trading.service.id.IdGenerator;
+import com.thousif.trading.service.journal.JournalRecord;
+import com.thousif.trading.service.journal.JournalRecordType;
+import com.thousif.trading.util.PriceScale;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Write-behind batcher for the transactions table, one row per side of every projected fill.
+// Rows are inserted with multi-row INSERT statements and the last written journal sequence is stored
+// in the same transaction, so fills not yet written before a restart are replayed from the journal.
+// A side whose order the projector dead-lettered is skipped, and a fill whose order is still missing
+// after a few retries is dead-lettered itself, so one bad order cannot hold back every later fill.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class TransactionWriter implements Runnable {
+
+    private static final String CHECKPOINT_NAME = "transaction-writer";
+    private static final String INSERT_PREFIX = "INSERT INTO transactions (transaction_id, order_id, user_id, "
+            + "stock_id, transaction_type, quantity, price, total_amount, brokerage, tax, net_amount, executed_at) VALUES ";
+    private static final String ROW_PLACEHOLDERS = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final long RETRY_DELAY_MILLIS = 1000;
+    private static final int POISON_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JournalCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final IdGenerator idGenerator;
+    private final JournalDeadLetterRepository deadLetterRepository;
+
+    @Value("${trading.transactions.batch-size:500}")
+    private int batchSize;
+
+    @Value("${trading.transactions.linger-ms:50}")
+    private long lingerMillis;
+
+    private final BlockingQueue<JournalRecord> queue = new LinkedBlockingQueue<>();
+    private volatile long writtenSequence;
+    private long queuedSequence;
+    private volatile boolean running = true;
+    private Thread worker;
+    // consecutive failures of the pending batch starting at this sequence
+    private long failingSequence;
+    private int failures;
+
+    @PostConstruct
+    public void start() {
+        writtenSequence = checkpointRepository.findById(CHECKPOINT_NAME)
+                .map(JournalCheckpoint::getSequence)
+                .orElse(0L);
+        queuedSequence = writtenSequence;
+
+        worker = new Thread(this, "transaction-writer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // called by the projector once a batch is committed, so every fill refers to a persisted order
+    public synchronized void enqueue(List<JournalRecord> records) {
+        for (JournalRecord record : records) {
+            if (record.getType() == JournalRecordType.FILL && record.getSequence() > queuedSequence) {
+                queue.add(record);
+                queuedSequence = record.getSequence();
+            }
+        }
+    }
+
+    public long getWrittenSequence() {
+        return writtenSequence;
+    }
+
+    @Override
+    public void run() {
+        List<JournalRecord> pending = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty() || !pending.isEmpty()) {
+            try {
+                if (pending.isEmpty()) {
+                    JournalRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null) {
+                        continue;
+                    }
+                    pending.add(first);
+                    // linger briefly so a sweep across many levels lands in one statement
+                    long deadline = System.currentTimeMillis() + lingerMillis;
+                    while (pending.size() < batchSize) {
+                        long remaining = deadline - System.currentTimeMillis();
+                        JournalRecord next = remaining > 0 ? queue.poll(remaining, TimeUnit.MILLISECONDS) : queue.poll();
+                        if (next == null) {
+                            break;
+                        }
+                        pending.add(next);
+                    }
+                }
+                write(pending);
+                pending.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // kept pending and retried, the checkpoint has not moved past these fills
+                log.error("Failed to write {} transaction fill(s), retrying", pending.size(), e);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(RETRY_DELAY_MILLIS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void write(List<JournalRecord> fills) {
+        long last = fills.get(fills.size() - 1).getSequence();
+        transactionTemplate.executeWithoutResult(status -> {
+            Map<String, OrderRef> orders = loadOrders(fills);
+            Set<String> skipped = skippedOrders(fills, orders);
+            List<Object> args = new ArrayList<>(fills.size() * 2 * 12);
+            int rows = 0;
+            for (JournalRecord fill : fills) {
+                rows += addRow(args, orders, skipped, fill.getBuyOrderId(), fill);
+                rows += addRow(args, orders, skipped, fill.getSellOrderId(), fill);
+            }
+            if (rows > 0) {
+                jdbcTemplate.update(INSERT_PREFIX + String.join(", ", Collections.nCopies(rows, ROW_PLACEHOLDERS)),
+                        args.toArray());
+            }
+            checkpointRepository.save(new JournalCheckpoint(CHECKPOINT_NAME, last));
+        });
+        writtenSequence = last;
+        failures = 0;
+        log.debug("Wrote transactions for {} fill(s) up to sequence {}", fills.size(), last);
+    }
+
+    // Fills arrive after the projector committed their orders, so a missing order row is either
+    // dead-lettered by the projector or retried. Only once it stays missing is the fill dead-lettered.
+    private Set<String> skippedOrders(List<JournalRecord> fills, Map<String, OrderRef> orders) {
+        Set<String> missing = new HashSet<>();
+        for (JournalRecord fill : fills) {
+            for (String orderId : new String[]{fill.getBuyOrderId(), fill.getSellOrderId()}) {
+                if (orderId != null && !orders.containsKey(orderId)) {
+                    missing.add(orderId);
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return missing;
+        }
+
+        Set<String> unknown = new HashSet<>(missing);
+        for (JournalDeadLetter letter : deadLetterRepository.findByOrderIdIn(missing)) {
+            unknown.remove(letter.getOrderId());
+        }
+        if (unknown.isEmpty()) {
+            log.warn("Skipping transactions of dead-lettered order(s) {}", missing);
+            return missing;
+        }
+
+        if (recordFailure(fills.get(0).getSequence()) < POISON_ATTEMPTS) {
+            throw new TradingPlatformException("Order(s) " + unknown + " for fills up to "
+                    + fills.get(fills.size() - 1).getSequence() + " are not persisted yet");
+        }
+        for (JournalRecord fill : fills) {
+            String orderId = unknown.contains(fill.getBuyOrderId()) ? fill.getBuyOrderId()
+                    : unknown.contains(fill.getSellOrderId()) ? fill.getSellOrderId() : null;
+            if (orderId != null && !deadLetterRepository.existsById(fill.getSequence())) {
+                log.error("Dead-lettering transactions of fill {}, order {} was never persisted",
+                        fill.getSequence(), orderId);
+                deadLetterRepository.save(JournalDeadLetter.builder()
+                        .sequence(fill.getSequence())
+                        .recordType(fill.getType().name())
+                        .orderId(orderId)
+                        .symbol(fill.getSymbol())
+                        .error("Order " + orderId + " not persisted after " + POISON_ATTEMPTS + " attempts")
+                        .createdAt(LocalDateTime.now())
+                        .build());
+            }
+        }
+        return missing;
+    }
+
+    private int recordFailure(long sequence) {
+        if (failingSequence != sequence) {
+            failingSequence = sequence;
+            failures = 0;
+        }
+        return ++failures;
+    }
+
+    private int addRow(List<Object> args, Map<String, OrderRef> orders, Set<String> skipped, String orderId,
+                       JournalRecord fill) {
+        if (orderId == null || skipped.contains(orderId)) {
+            return 0;
+        }
+        OrderRef order = orders.get(orderId);
+        BigDecimal price = PriceScale.fromTicks(fill.getPrice());
+        BigDecimal total = price.multiply(new BigDecimal(fill.getQuantity()));
+        args.add(idGenerator.nextTransactionId());
+        args.add(order.id());
+        args.add(order.userId());
+        args.add(order.stockId());
+        args.add(order.side());
+        args.add(fill.getQuantity());
+        args.add(price);
+        args.add(total);
+        args.add(BigDecimal.ZERO);
+        args.add(BigDecimal.ZERO);
+        args.add(total);
+        args.add(new Timestamp(fill.getTimestamp()));
+        return 1;
+    }
+
+    private Map<String, OrderRef> loadOrders(List<JournalRecord> fills) {
+        Set<String> orderIds = new LinkedHashSet<>();
+        for (JournalRecord fill : fills) {
+            if (fill.getBuyOrderId() != null) {
+                orderIds.add(fill.getBuyOrderId());
+            }
+            if (fill.getSellOrderId() != null) {
+                orderIds.add(fill.getSellOrderId());
+            }
+        }
+
+        Map<String, OrderRef> orders = new HashMap<>(orderIds.size() * 2);
+        jdbcTemplate.query(
+                "SELECT id, order_id, user_id, stock_id, transaction_type FROM orders WHERE order_id IN ("
+                        + String.join(", ", Collections.nCopies(orderIds.size(), "?")) + ")",
+                rs -> {
+                    orders.put(rs.getString("order_id"), new OrderRef(
+                            rs.getLong("id"), rs.getLong("user_id"), rs.getLong("stock_id"),
+                            rs.getString("transaction_type")));
+                },
+                orderIds.toArray());
+        return orders;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private record OrderRef(long id, long userId, long stockId, String side) {
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.thousif.trading.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Prices are stored as DECIMAL(10,2), so in memory we keep them as long paise/cents
+public final class PriceScale {
+
+    public static final int SCALE = 2;
+
+    private PriceScale() {
+    }
+
+    public static long toTicks(BigDecimal price) {
+        return price.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromTicks(long ticks) {
+        return BigDecimal.valueOf(ticks, SCALE);
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.thousif.trading.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Conflates market data on its way out to each session. An update tagged with a symbol header goes out
+// at once when nothing was sent for that session, subscription and symbol since the last flush; further
+// updates within the flush interval are held, a newer one replaces one not yet sent, and the flush sends
+// the latest. A busy symbol or slow subscriber then gets at most about one update per interval instead of
+// the broker queueing every tick, while a quiet symbol is not delayed at all. Deltas are merged rather
+// than replaced, keeping the older prevSeq, so a subscriber that fell behind still sees an unbroken sequence.
+@Component
+@Slf4j
+public class MarketDataConflator implements ChannelInterceptor {
+
+    public static final String SYMBOL_HEADER = "symbol";
+    public static final String DELTA_HEADER = "delta";
+    private static final String FLUSHED_HEADER = "conflated";
+    // marks a key that sent an update since the last flush, the next one within the interval is held
+    private static final Message<?> SENT_RECENTLY = MessageBuilder.withPayload(new byte[0]).build();
+
+    private final Map<String, Map<String, Message<?>>> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final Counter conflated;
+    private final Counter sent;
+    private final ObjectMapper objectMapper;
+    private volatile MessageChannel outboundChannel;
+
+    public MarketDataConflator(MeterRegistry registry, ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.conflated = Counter.builder("market_data.conflated")
+                .description("Market data updates replaced by a newer one before they were sent")
+                .register(registry);
+        this.sent = Counter.builder("market_data.sent")
+                .description("Market data updates sent to subscribers")
+                .register(registry);
+        Gauge.builder("market_data.queue.depth", depth, AtomicInteger::get)
+                .description("Market data updates waiting to be sent")
+                .register(registry);
+        Gauge.builder("market_data.sessions", sessions, Map::size)
+                .description("Sessions with a market data queue")
+                .register(registry);
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE || accessor.getHeader(FLUSHED_HEADER) != null) {
+            return message;
+        }
+        String symbol = accessor.getFirstNativeHeader(SYMBOL_HEADER);
+        String sessionId = accessor.getSessionId();
+        if (symbol == null || sessionId == null) {
+            return message;
+        }
+
+        outboundChannel = channel;
+        boolean delta = accessor.getFirstNativeHeader(DELTA_HEADER) != null;
+        Message<?>[] previous = new Message<?>[1];
+        sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>())
+                .compute(accessor.getSubscriptionId() + ":" + symbol, (key, older) -> {
+                    previous[0] = older;
+                    if (older == null) {
+                        return SENT_RECENTLY;
+                    }
+                    return older == SENT_RECENTLY || !delta ? message : mergeDeltas(older, message);
+                });
+        if (previous[0] == null) {
+            // nothing in flight for this symbol, no reason to wait for the flush
+            sent.increment();
+            return message;
+        }
+        if (previous[0] == SENT_RECENTLY) {
+            depth.incrementAndGet();
+        } else {
+            conflated.increment();
+        }
+        // held back, the flush sends the latest one
+        return null;
+    }
+
+    // newer fields win, the range starts where the older delta started
+    private Message<?> mergeDeltas(Message<?> older, Message<?> newer) {
+        try {
+            ObjectNode merged = (ObjectNode) objectMapper.readTree((byte[]) older.getPayload());
+            JsonNode prevSeq = merged.get("prevSeq");
+            merged.setAll((ObjectNode) objectMapper.readTree((byte[]) newer.getPayload()));
+            merged.set("prevSeq", prevSeq);
+            return MessageBuilder.createMessage(objectMapper.writeValueAsBytes(merged), newer.getHeaders());
+        } catch (IOException | ClassCastException e) {
+            // the client sees a gap and resyncs
+            log.warn("Failed to merge market data deltas, sending the newer one alone", e);
+            return newer;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${trading.market-data.conflation.flush-interval-ms:100}")
+    public void flush() {
+        MessageChannel channel = outboundChannel;
+        if (channel == null) {
+            return;
+        }
+        for (Map<String, Message<?>> pending : sessions.values()) {
+            for (String key : pending.keySet()) {
+                // sent under the key's lock so an update arriving meanwhile is neither lost nor sent first
+                pending.computeIfPresent(key, (k, message) -> {
+                    if (message == SENT_RECENTLY) {
+                        // quiet for a whole interval, the next update goes out at once
+                        return null;
+                    }
+                    depth.decrementAndGet();
+                    channel.send(MessageBuilder.fromMessage(message).setHeader(FLUSHED_HEADER, Boolean.TRUE).build());
+                    sent.increment();
+                    return SENT_RECENTLY;
+                });
+            }
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        Map<String, Message<?>> pending = sessions.remove(event.getSessionId());
+        if (pending != null) {
+            depth.addAndGet(-(int) pending.values().stream().filter(message -> message != SENT_RECENTLY).count());
+        }
+    }
+
+}
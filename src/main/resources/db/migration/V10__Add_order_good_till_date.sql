@@ -0,0 +1,2 @@
+-- Expiry date for GTD orders, DAY and IOC orders leave it empty
+ALTER TABLE orders ADD COLUMN good_till_date DATE NULL AFTER validity;
@@ -0,0 +1,9 @@
+-- Journal records the projector proved it can never apply, kept for an operator to repair and replay
+CREATE TABLE journal_dead_letters (
+    sequence BIGINT PRIMARY KEY,
+    record_type VARCHAR(20) NOT NULL,
+    order_id VARCHAR(50),
+    symbol VARCHAR(20),
+    error VARCHAR(1000),
+    created_at TIMESTAMP NOT NULL
+);
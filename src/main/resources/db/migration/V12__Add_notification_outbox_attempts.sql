@@ -0,0 +1,2 @@
+-- Failed deliveries stay in the outbox and are retried until they run out of attempts
+ALTER TABLE notification_outbox ADD COLUMN attempts INT NOT NULL DEFAULT 0 AFTER price;
@@ -0,0 +1,6 @@
+-- Last journal sequence applied to MySQL by each projector
+CREATE TABLE journal_checkpoints (
+    name VARCHAR(50) PRIMARY KEY,
+    sequence BIGINT NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
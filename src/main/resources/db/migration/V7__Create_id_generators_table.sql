@@ -0,0 +1,9 @@
+-- Pooled id blocks for entities inserted in JDBC batches (IDENTITY disables batching)
+CREATE TABLE id_generators (
+    name VARCHAR(50) PRIMARY KEY,
+    next_val BIGINT NOT NULL
+);
+
+-- the stored value is the top of the next block of 50, so continue after the existing rows
+INSERT INTO id_generators (name, next_val)
+SELECT 'orders', COALESCE(MAX(id), 0) + 50 FROM orders;
@@ -0,0 +1,14 @@
+-- Notification intents written with the order/user change, drained by the notification relay
+CREATE TABLE notification_outbox (
+    id BIGINT PRIMARY KEY,
+    type VARCHAR(30) NOT NULL,
+    user_id BIGINT NOT NULL,
+    order_id VARCHAR(50),
+    symbol VARCHAR(20),
+    transaction_type VARCHAR(10),
+    quantity INT,
+    price DECIMAL(10,2),
+    created_at TIMESTAMP NOT NULL
+);
+
+INSERT INTO id_generators (name, next_val) VALUES ('notification_outbox', 50);
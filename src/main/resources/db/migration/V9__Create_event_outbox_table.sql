@@ -0,0 +1,10 @@
+-- Kafka events written with the change they describe, published in id order by the event relay
+CREATE TABLE event_outbox (
+    id BIGINT PRIMARY KEY,
+    topic VARCHAR(100) NOT NULL,
+    event_key VARCHAR(100),
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+INSERT INTO id_generators (name, next_val) VALUES ('event_outbox', 50);
@@ -0,0 +1,90 @@
+package com.thousif.trading.controller;
+
+import com.thousif.trading.config.SecurityConfig;
+import com.thousif.trading.dto.response.OrderResponse;
+import com.thousif.trading.entity.User;
+import com.thousif.trading.enums.Role;
+import com.thousif.trading.security.CustomUserDetails;
+import com.thousif.trading.security.CustomUserDetailsService;
+import com.thousif.trading.security.JwtTokenProvider;
+import com.thousif.trading.service.sequencer.OrderSequencer;
+import com.thousif.trading.service.trading.OrderService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(OrderController.class)
+@Import({SecurityConfig.class, OrderControllerTest.Meters.class})
+class OrderControllerTest {
+
+    @TestConfiguration
+    static class Meters {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockitoBean
+    private OrderService orderService;
+
+    @MockitoBean
+    private OrderSequencer orderSequencer;
+
+    @MockitoBean
+    private JwtTokenProvider jwtTokenProvider;
+
+    @MockitoBean
+    private CustomUserDetailsService customUserDetailsService;
+
+    @BeforeEach
+    void authenticate() {
+        when(jwtTokenProvider.resolveUsername(any())).thenCallRealMethod();
+        when(jwtTokenProvider.getValidatedUsername("token")).thenReturn("alice");
+        when(customUserDetailsService.loadUserByUsername("alice"))
+                .thenReturn(new CustomUserDetails(User.builder().id(1L).username("alice").password("x").roles(Set.of(Role.USER)).build()));
+    }
+
+    @Test
+    void placedOrderIsReturnedOnTheAsyncDispatch() throws Exception {
+        when(orderSequencer.placeOrder(any(), eq("alice"))).thenReturn(
+                CompletableFuture.completedFuture(OrderResponse.builder().orderId("ORD1").build()));
+
+        MvcResult started = mockMvc.perform(post("/api/orders")
+                        .header("Authorization", "Bearer token")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"stockSymbol\":\"TCS\",\"transactionType\":\"BUY\",\"orderType\":\"MARKET\",\"quantity\":1}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orderId").value("ORD1"));
+    }
+
+}
@@ -0,0 +1,104 @@
+package com.thousif.trading.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thousif.trading.entity.User;
+import com.thousif.trading.enums.Role;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Set;
+
+import static com.thousif.trading.security.RateLimitFilter.EndpointClass.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RateLimitFilterTest {
+
+    private final JwtTokenProvider jwtTokenProvider =
+            spy(new JwtTokenProvider("mySecretKeyForJWTTokenGeneration123456789", 86_400_000));
+    private final CustomUserDetailsService userDetailsService = mock(CustomUserDetailsService.class);
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private RateLimitFilter rateLimitFilter() {
+        RateLimitFilter filter = new RateLimitFilter(jwtTokenProvider, new SimpleMeterRegistry(),
+                new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(filter, "enabled", true);
+        ReflectionTestUtils.setField(filter, "placeCapacity", 1);
+        ReflectionTestUtils.setField(filter, "placeRefill", 0.001);
+        filter.registerMeters();
+        return filter;
+    }
+
+    private static MockHttpServletRequest placeOrder(String token) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/orders");
+        request.addHeader("Authorization", "Bearer " + token);
+        return request;
+    }
+
+    @Test
+    void batchesAreChargedToTheirOwnBucket() {
+        assertEquals(PLACE, RateLimitFilter.classify("POST", "/api/orders"));
+        assertEquals(BATCH, RateLimitFilter.classify("POST", "/api/orders/batch"));
+        assertEquals(READ, RateLimitFilter.classify("GET", "/api/orders/batch"));
+        assertEquals(CANCEL, RateLimitFilter.classify("PUT", "/api/orders/ORD1"));
+        assertEquals(CANCEL, RateLimitFilter.classify("DELETE", "/api/orders"));
+    }
+
+    @Test
+    void tokenIsVerifiedOnceForTheLimiterAndAuthentication() throws Exception {
+        when(userDetailsService.loadUserByUsername("alice")).thenReturn(new CustomUserDetails(
+                User.builder().id(1L).username("alice").password("x").roles(Set.of(Role.USER)).build()));
+        JwtAuthenticationFilter authenticationFilter =
+                new JwtAuthenticationFilter(jwtTokenProvider, userDetailsService);
+        RateLimitFilter rateLimitFilter = rateLimitFilter();
+        String token = jwtTokenProvider.generateToken("alice");
+
+        MockFilterChain controller = new MockFilterChain();
+        FilterChain chain = (request, response) -> authenticationFilter.doFilter(request, response, controller);
+        rateLimitFilter.doFilter(placeOrder(token), new MockHttpServletResponse(), chain);
+
+        assertNotNull(controller.getRequest());
+        assertEquals("alice", SecurityContextHolder.getContext().getAuthentication().getName());
+        verify(jwtTokenProvider, times(1)).getValidatedUsername(token);
+    }
+
+    @Test
+    void limitedRequestIsRejectedBeforeTheUserIsLoaded() throws Exception {
+        RateLimitFilter rateLimitFilter = rateLimitFilter();
+        String token = jwtTokenProvider.generateToken("alice");
+        rateLimitFilter.doFilter(placeOrder(token), new MockHttpServletResponse(), new MockFilterChain());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        rateLimitFilter.doFilter(placeOrder(token), response, chain);
+
+        assertEquals(429, response.getStatus());
+        assertNull(chain.getRequest());
+        verifyNoInteractions(userDetailsService);
+    }
+
+    @Test
+    void invalidTokenIsLeftToTheSecurityChain() throws Exception {
+        RateLimitFilter rateLimitFilter = rateLimitFilter();
+        MockHttpServletRequest request = placeOrder("not-a-jwt");
+
+        MockFilterChain chain = new MockFilterChain();
+        rateLimitFilter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertNotNull(chain.getRequest());
+        assertNull(jwtTokenProvider.resolveUsername(request));
+        verify(jwtTokenProvider, times(1)).getValidatedUsername("not-a-jwt");
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.thousif.trading.security;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    @Test
+    void allowsBurstThenRefillsAtRate() {
+        TokenBucket bucket = new TokenBucket(3, 2);
+        long now = 5 * SECOND;
+
+        assertTrue(bucket.tryAcquire(now));
+        assertTrue(bucket.tryAcquire(now));
+        assertTrue(bucket.tryAcquire(now));
+        assertFalse(bucket.tryAcquire(now));
+        assertEquals(SECOND / 2, bucket.waitNanos(now));
+
+        assertTrue(bucket.tryAcquire(now + SECOND / 2));
+        assertFalse(bucket.tryAcquire(now + SECOND / 2));
+    }
+
+    @Test
+    void idleBucketRefillsOnlyToCapacity() {
+        TokenBucket bucket = new TokenBucket(2, 10);
+        assertTrue(bucket.tryAcquire(0));
+        long later = 60 * SECOND;
+
+        assertTrue(bucket.tryAcquire(later));
+        assertTrue(bucket.tryAcquire(later));
+        assertFalse(bucket.tryAcquire(later));
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.thousif.trading.service.cache;
+
+import com.thousif.trading.dto.response.OrderResponse;
+import com.thousif.trading.exception.TradingPlatformException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class ClientOrderIdCacheTest {
+
+    private final CacheService cacheService = mock(CacheService.class);
+    private final ClientOrderIdCache cache = new ClientOrderIdCache(cacheService);
+    private final AtomicInteger placed = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "ttlMinutes", 15L);
+        ReflectionTestUtils.setField(cache, "maxEntries", 2);
+        ReflectionTestUtils.setField(cache, "redisEnabled", true);
+        ReflectionTestUtils.setField(cache, "redisRetryMillis", 60_000L);
+        // redis unreachable, the local index alone has to deduplicate
+        when(cacheService.cacheObjectsIfAbsent(anyList(), any(), any())).thenReturn(null);
+    }
+
+    private void claimsSucceed() {
+        when(cacheService.cacheObjectsIfAbsent(anyList(), any(), any()))
+                .thenAnswer(invocation -> Collections.nCopies(invocation.<List<String>>getArgument(0).size(), true));
+    }
+
+    private CompletableFuture<OrderResponse> place(String clientOrderId) {
+        return cache.place("alice", clientOrderId, () -> CompletableFuture.completedFuture(
+                OrderResponse.builder().orderId("ORD" + placed.incrementAndGet()).build()));
+    }
+
+    @Test
+    void retryReturnsOriginalOrder() {
+        OrderResponse first = place("c-1").join();
+        OrderResponse retry = place("c-1").join();
+
+        assertSame(first, retry);
+        assertEquals(1, placed.get());
+        assertNotEquals(first.getOrderId(), place(null).join().getOrderId());
+    }
+
+    @Test
+    void failedPlacementCanBeRetried() {
+        claimsSucceed();
+        CompletableFuture<OrderResponse> failed = cache.place("alice", "c-1",
+                () -> CompletableFuture.failedFuture(new TradingPlatformException("rejected")));
+        assertThrows(CompletionException.class, failed::join);
+
+        assertEquals("ORD1", place("c-1").join().getOrderId());
+        verify(cacheService).evictCache("order:client:alice:c-1");
+    }
+
+    @Test
+    void oldestIdsAreEvictedPastTheBound() {
+        place("c-1").join();
+        place("c-2").join();
+        place("c-3").join();
+
+        place("c-1").join();
+        assertEquals(4, placed.get());
+    }
+
+    @Test
+    void unreachableRedisIsSkippedUntilTheRetryTime() {
+        place("c-1").join();
+        place("c-2").join();
+
+        verify(cacheService, times(1)).cacheObjectsIfAbsent(anyList(), any(), any());
+        verify(cacheService, never()).cacheObject(anyString(), any(), any());
+    }
+
+    @Test
+    void redisIsWrittenOffThePlacingThread() {
+        claimsSucceed();
+        Thread caller = Thread.currentThread();
+        AtomicReference<Thread> writer = new AtomicReference<>();
+        doAnswer(invocation -> {
+            writer.set(Thread.currentThread());
+            return null;
+        }).when(cacheService).cacheObject(anyString(), any(), any());
+
+        place("c-1").join();
+
+        assertNotNull(writer.get());
+        assertNotSame(caller, writer.get());
+    }
+
+    @Test
+    void requestThreadNeitherClaimsNorPlacesWhileRedisIsUsed() {
+        Thread caller = Thread.currentThread();
+        AtomicReference<Thread> claimer = new AtomicReference<>();
+        AtomicReference<Thread> placer = new AtomicReference<>();
+        when(cacheService.cacheObjectsIfAbsent(anyList(), any(), any())).thenAnswer(invocation -> {
+            claimer.set(Thread.currentThread());
+            return List.of(true);
+        });
+
+        OrderResponse response = cache.place("alice", "c-1", () -> {
+            placer.set(Thread.currentThread());
+            return CompletableFuture.completedFuture(OrderResponse.builder().orderId("ORD1").build());
+        }).join();
+
+        assertEquals("ORD1", response.getOrderId());
+        assertNotSame(caller, claimer.get());
+        assertNotSame(caller, placer.get());
+        // a retry is answered from the local index without another claim
+        assertSame(response, place("c-1").join());
+        verify(cacheService, times(1)).cacheObjectsIfAbsent(anyList(), any(), any());
+    }
+
+    @Test
+    void claimsQueuedDuringARoundTripArePipelinedTogether() throws Exception {
+        CountDownLatch firstSent = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> roundTrips = new CopyOnWriteArrayList<>();
+        when(cacheService.cacheObjectsIfAbsent(anyList(), any(), any())).thenAnswer(invocation -> {
+            List<String> keys = invocation.getArgument(0);
+            roundTrips.add(keys.size());
+            firstSent.countDown();
+            release.await();
+            return Collections.nCopies(keys.size(), true);
+        });
+
+        CompletableFuture<OrderResponse> first = place("c-1");
+        assertTrue(firstSent.await(5, TimeUnit.SECONDS));
+        List<CompletableFuture<OrderResponse>> queued = List.of(place("c-2"), place("c-3"), place("c-4"));
+        release.countDown();
+
+        first.join();
+        queued.forEach(CompletableFuture::join);
+        assertEquals(List.of(1, 3), roundTrips);
+        assertEquals(4, placed.get());
+    }
+
+    @Test
+    void idClaimedThroughAnotherNodeReturnsItsOrder() {
+        when(cacheService.cacheObjectsIfAbsent(anyList(), any(), any())).thenReturn(List.of(false));
+        OrderResponse original = OrderResponse.builder().orderId("ORD-REMOTE").build();
+        when(cacheService.getCacheObject("order:client:alice:c-1")).thenReturn(original);
+
+        assertEquals("ORD-REMOTE", place("c-1").join().getOrderId());
+        assertEquals(0, placed.get());
+    }
+
+}
@@ -0,0 +1,69 @@
+package com.thousif.trading.service.expiry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void firesEachEntryOnItsDeadlineTick() {
+        long start = 1_000_000;
+        TimingWheel<Long> wheel = new TimingWheel<>(1, 3, start);
+        Random random = new Random(42);
+        Map<Long, Integer> due = new HashMap<>();
+        // spans all three levels and the clamped range beyond them
+        for (int i = 0; i < 5_000; i++) {
+            long deadline = start + 1 + random.nextInt(400_000);
+            wheel.add(deadline, deadline);
+            due.merge(deadline, 1, Integer::sum);
+        }
+
+        List<Long> fired = new ArrayList<>();
+        for (long now = start + 1; now <= start + 400_000; now++) {
+            long tick = now;
+            wheel.advanceTo(now, deadline -> {
+                assertEquals(deadline, tick);
+                fired.add(deadline);
+            });
+        }
+
+        assertEquals(5_000, fired.size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void pastDeadlinesFireOnTheNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(1000, 4, 10_000);
+        wheel.add("late", 2_000);
+
+        List<String> fired = new ArrayList<>();
+        wheel.advanceTo(10_999, fired::add);
+        assertTrue(fired.isEmpty());
+
+        wheel.advanceTo(11_000, fired::add);
+        assertEquals(List.of("late"), fired);
+    }
+
+    @Test
+    void catchesUpOverSkippedTicks() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(1, 4, 0);
+        wheel.add(1, 70);
+        wheel.add(2, 5_000);
+        wheel.add(3, 300_000);
+
+        List<Integer> fired = new ArrayList<>();
+        wheel.advanceTo(4_999, fired::add);
+        assertEquals(List.of(1), fired);
+
+        wheel.advanceTo(1_000_000, fired::add);
+        assertEquals(List.of(1, 2, 3), fired);
+    }
+
+}
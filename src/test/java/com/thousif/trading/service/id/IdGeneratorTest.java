@@ -0,0 +1,158 @@
+package com.thousif.trading.service.id;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdGeneratorTest {
+
+    private static final long EPOCH = 1735689600000L;
+
+    private final IdGenerator generator = new IdGenerator();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(generator, "nodeId", 3L);
+        generator.init();
+    }
+
+    private static long millis(long id) {
+        return id >>> 22;
+    }
+
+    private static long node(long id) {
+        return (id >>> 12) & 1023;
+    }
+
+    private static long sequence(long id) {
+        return id & 4095;
+    }
+
+    // pretends the last id was handed out at the given millisecond and sequence
+    private void lastIssued(long millis, long sequence) {
+        AtomicLong state = (AtomicLong) ReflectionTestUtils.getField(generator, "state");
+        state.set((millis << 12) | sequence);
+    }
+
+    @Test
+    void idsAreStrictlyIncreasingAndUniqueUnderContention() throws Exception {
+        int threads = 8;
+        int perThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                long[] ids = new long[perThread];
+                for (int i = 0; i < perThread; i++) {
+                    ids[i] = generator.next();
+                }
+                return ids;
+            }));
+        }
+        start.countDown();
+
+        Set<Long> all = new HashSet<>();
+        for (Future<long[]> result : results) {
+            long[] ids = result.get();
+            for (int i = 0; i < ids.length; i++) {
+                if (i > 0) {
+                    assertTrue(ids[i] > ids[i - 1], "ids went backwards within a thread");
+                }
+                assertEquals(3, node(ids[i]));
+                all.add(ids[i]);
+            }
+        }
+        executor.shutdown();
+        assertEquals(threads * perThread, all.size());
+    }
+
+    @Test
+    void sequenceOverflowRollsIntoTheNextMillisecond() {
+        long future = System.currentTimeMillis() - EPOCH + 60_000;
+        lastIssued(future, 4095);
+
+        long id = generator.next();
+
+        assertEquals(future + 1, millis(id));
+        assertEquals(0, sequence(id));
+        assertEquals(3, node(id));
+    }
+
+    @Test
+    void clockMovingBackwardsKeepsCountingFromTheLastId() {
+        // the last id was issued an hour ahead of what the clock reads now
+        long ahead = System.currentTimeMillis() - EPOCH + 3_600_000;
+        lastIssued(ahead, 5);
+
+        long first = generator.next();
+        long second = generator.next();
+
+        assertEquals(ahead, millis(first));
+        assertEquals(6, sequence(first));
+        assertEquals(ahead, millis(second));
+        assertEquals(7, sequence(second));
+        assertTrue(second > first);
+    }
+
+    @Test
+    void nodeIdOutOfRangeIsRejected() {
+        IdGenerator misconfigured = new IdGenerator();
+        ReflectionTestUtils.setField(misconfigured, "nodeId", 1024L);
+        assertThrows(IllegalStateException.class, misconfigured::init);
+    }
+
+    @Test
+    void encodingRoundTripsAtFixedWidth() {
+        Random random = new Random(42);
+        List<Long> values = new ArrayList<>(List.of(0L, 1L, 31L, 32L, Long.MAX_VALUE, generator.next()));
+        for (int i = 0; i < 1_000; i++) {
+            values.add(random.nextLong() >>> 1);
+        }
+
+        for (long value : values) {
+            String encoded = IdGenerator.encode(value);
+            assertEquals(13, encoded.length());
+            assertEquals(value, IdGenerator.decode(encoded));
+        }
+        assertEquals("0000000000000", IdGenerator.encode(0));
+    }
+
+    @Test
+    void encodingKeepsNumericOrder() {
+        Random random = new Random(7);
+        List<Long> values = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            values.add(random.nextLong() >>> 1);
+        }
+        values.sort(null);
+
+        for (int i = 1; i < values.size(); i++) {
+            String previous = IdGenerator.encode(values.get(i - 1));
+            String current = IdGenerator.encode(values.get(i));
+            assertTrue(previous.compareTo(current) <= 0, previous + " sorts after " + current);
+        }
+        assertTrue(generator.nextOrderId().compareTo(generator.nextOrderId()) < 0);
+    }
+
+    @Test
+    void decodingRejectsCharactersOutsideTheAlphabet() {
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.decode("000000000000I"));
+        assertThrows(IllegalArgumentException.class, () -> IdGenerator.decode("000000000000u"));
+    }
+
+}
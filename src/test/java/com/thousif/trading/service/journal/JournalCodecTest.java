@@ -0,0 +1,63 @@
+package com.thousif.trading.service.journal;
+
+import com.thousif.trading.enums.OrderType;
+import com.thousif.trading.enums.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalCodecTest {
+
+    private JournalRecord roundTrip(JournalRecord record) {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        JournalCodec.encode(record, buffer);
+        buffer.flip();
+        JournalRecord decoded = JournalCodec.decode(buffer);
+        assertFalse(buffer.hasRemaining());
+        return decoded;
+    }
+
+    @Test
+    void acceptRoundTripsEveryField() {
+        JournalRecord accept = JournalRecord.builder()
+                .type(JournalRecordType.ACCEPT)
+                .sequence(42)
+                .timestamp(1_760_000_000_000L)
+                .orderId("ORD1")
+                .symbol("TCS")
+                .userId(7L)
+                .username("alice")
+                .stockId(3L)
+                .transactionType(TransactionType.SELL)
+                .orderType(OrderType.SL)
+                .quantity(100)
+                .price(350_050)
+                .triggerPrice(349_000)
+                .validity("GTD")
+                .goodTillDate(20_500)
+                .disclosedQuantity(10)
+                .notes("hedge")
+                .build();
+
+        assertEquals(accept, roundTrip(accept));
+    }
+
+    @Test
+    void otherTypesRoundTrip() {
+        List<JournalRecord> records = List.of(
+                JournalRecord.trigger("ORD1", "TCS"),
+                JournalRecord.fill("TCS", "B1", "S1", 350_000, 5),
+                JournalRecord.cancel("ORD1", "TCS", 3),
+                JournalRecord.amend("ORD1", "TCS", 4, 351_000),
+                JournalRecord.reject("ORD1", "TCS", 2, "Insufficient funds"));
+        for (JournalRecord record : records) {
+            record.setSequence(9);
+            record.setTimestamp(123);
+            assertEquals(record, roundTrip(record));
+        }
+    }
+
+}
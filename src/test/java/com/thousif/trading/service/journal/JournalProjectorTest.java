@@ -0,0 +1,131 @@
+package com.thousif.trading.service.journal;
+
+import com.thousif.trading.entity.JournalCheckpoint;
+import com.thousif.trading.entity.JournalDeadLetter;
+import com.thousif.trading.repository.JournalCheckpointRepository;
+import com.thousif.trading.repository.JournalDeadLetterRepository;
+import com.thousif.trading.service.trading.TradeSettlementService;
+import com.thousif.trading.service.trading.TransactionWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class JournalProjectorTest {
+
+    private final TradeSettlementService settlementService = mock(TradeSettlementService.class);
+    private final JournalCheckpointRepository checkpointRepository = mock(JournalCheckpointRepository.class);
+    private final JournalDeadLetterRepository deadLetterRepository = mock(JournalDeadLetterRepository.class);
+    // records the sequences applied in transactions that went through
+    private final List<Long> applied = new ArrayList<>();
+    private JournalProjector projector;
+
+    @BeforeEach
+    void setUp() {
+        when(checkpointRepository.findById("order-projector"))
+                .thenReturn(Optional.of(new JournalCheckpoint("order-projector", 5L)));
+        projector = new JournalProjector(settlementService, checkpointRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                mock(TransactionWriter.class), deadLetterRepository);
+        ReflectionTestUtils.setField(projector, "batchSize", 16);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        projector.stop();
+    }
+
+    private static JournalRecord record(long sequence, String orderId) {
+        JournalRecord record = JournalRecord.cancel(orderId, "TCS", 1);
+        record.setSequence(sequence);
+        return record;
+    }
+
+    private void recordApplied() {
+        doAnswer(invocation -> {
+            List<JournalRecord> records = invocation.getArgument(0);
+            records.forEach(r -> applied.add(r.getSequence()));
+            return null;
+        }).when(settlementService).applyAll(anyList());
+    }
+
+    private long lastCheckpoint() {
+        ArgumentCaptor<JournalCheckpoint> captor = ArgumentCaptor.forClass(JournalCheckpoint.class);
+        verify(checkpointRepository, atLeastOnce()).save(captor.capture());
+        return captor.getValue().getSequence();
+    }
+
+    @Test
+    void resumesAfterTheStoredCheckpoint() {
+        recordApplied();
+        projector.start();
+        assertEquals(5, projector.getAppliedSequence());
+
+        projector.enqueueAll(List.of(record(4, "O4"), record(5, "O5"), record(6, "O6"), record(7, "O7")));
+
+        assertTrue(projector.awaitCaughtUp(5000));
+        assertEquals(List.of(6L, 7L), applied);
+        assertEquals(7, lastCheckpoint());
+    }
+
+    @Test
+    void transientFailureIsRetriedWithoutMovingTheCheckpoint() {
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (calls.getAndIncrement() == 0) {
+                throw new CannotAcquireLockException("deadlock");
+            }
+            List<JournalRecord> records = invocation.getArgument(0);
+            records.forEach(r -> applied.add(r.getSequence()));
+            return null;
+        }).when(settlementService).applyAll(anyList());
+        projector.start();
+
+        projector.enqueue(record(6, "O6"));
+
+        assertTrue(projector.awaitCaughtUp(5000));
+        assertEquals(2, calls.get());
+        assertEquals(List.of(6L), applied);
+        verify(checkpointRepository, times(1)).save(any());
+        assertEquals(6, lastCheckpoint());
+        verifyNoInteractions(deadLetterRepository);
+    }
+
+    @Test
+    void recordThatKeepsFailingOnItsOwnIsDeadLettered() {
+        doAnswer(invocation -> {
+            List<JournalRecord> records = invocation.getArgument(0);
+            if (records.stream().anyMatch(r -> r.getOrderId().equals("BAD"))) {
+                throw new IllegalStateException("poison");
+            }
+            records.forEach(r -> applied.add(r.getSequence()));
+            return null;
+        }).when(settlementService).applyAll(anyList());
+        projector.start();
+
+        projector.enqueueAll(List.of(record(6, "O6"), record(7, "BAD"), record(8, "O8")));
+
+        assertTrue(projector.awaitCaughtUp(10_000));
+        assertEquals(List.of(6L, 8L), applied);
+        ArgumentCaptor<JournalDeadLetter> captor = ArgumentCaptor.forClass(JournalDeadLetter.class);
+        verify(deadLetterRepository).save(captor.capture());
+        assertEquals(7L, captor.getValue().getSequence());
+        assertEquals("BAD", captor.getValue().getOrderId());
+        assertEquals(8, lastCheckpoint());
+    }
+
+}
@@ -0,0 +1,172 @@
+package com.thousif.trading.service.journal;
+
+import com.thousif.trading.entity.User;
+import com.thousif.trading.enums.OrderType;
+import com.thousif.trading.enums.TransactionType;
+import com.thousif.trading.repository.OrderRepository;
+import com.thousif.trading.repository.PortfolioRepository;
+import com.thousif.trading.repository.UserRepository;
+import com.thousif.trading.service.expiry.OrderExpiryService;
+import com.thousif.trading.service.ledger.AccountLedger;
+import com.thousif.trading.service.market.ticks.TickStore;
+import com.thousif.trading.service.matching.MatchingEngine;
+import com.thousif.trading.service.matching.OrderHandle;
+import com.thousif.trading.service.matching.OrderHandleIndex;
+import com.thousif.trading.service.matching.RestingOrder;
+import com.thousif.trading.service.matching.StopTriggerEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+// Writes a journal, snapshots and compacts it, then restores everything into fresh components the way a
+// restart would. MySQL is mocked with the balances the projector would have written by then.
+class JournalRecoveryTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<OrderJournal> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (OrderJournal journal : opened) {
+            journal.close();
+        }
+    }
+
+    // one process lifetime: its own journal, ledger, handles, books and stop index
+    private final class Node {
+
+        final UserRepository userRepository = mock(UserRepository.class);
+        final JournalProjector projector = mock(JournalProjector.class);
+        final OrderRepository orderRepository = mock(OrderRepository.class);
+        final AccountLedger ledger;
+        final OrderHandleIndex handles = new OrderHandleIndex();
+        final OrderJournal journal;
+        final MatchingEngine matchingEngine;
+        final StopTriggerEngine stopTriggerEngine = new StopTriggerEngine();
+        final JournalSnapshotter snapshotter;
+        final JournalRecovery recovery;
+
+        Node(String balanceAlice, String usedMarginAlice) throws IOException {
+            user(1L, "alice", balanceAlice, usedMarginAlice);
+            user(2L, "bob", "10000.00", "0.00");
+            PortfolioRepository portfolioRepository = mock(PortfolioRepository.class);
+            when(portfolioRepository.findHoldings(anyLong())).thenReturn(List.of());
+            when(projector.getReplaySequence()).thenReturn(Long.MAX_VALUE);
+            when(projector.awaitCaughtUp(anyLong())).thenReturn(true);
+            ledger = new AccountLedger(userRepository, portfolioRepository);
+
+            journal = new OrderJournal(projector, ledger, handles);
+            ReflectionTestUtils.setField(journal, "directory", dir.resolve("journal").toString());
+            ReflectionTestUtils.setField(journal, "segmentSizeMb", 1);
+            ReflectionTestUtils.setField(journal, "fsync", false);
+            journal.open();
+            opened.add(journal);
+
+            matchingEngine = new MatchingEngine(journal, mock(TickStore.class));
+            snapshotter = new JournalSnapshotter(journal, projector);
+            ReflectionTestUtils.setField(snapshotter, "directory", dir.resolve("snapshots").toString());
+            ReflectionTestUtils.setField(snapshotter, "retained", 2);
+            recovery = new JournalRecovery(journal, snapshotter, matchingEngine, stopTriggerEngine,
+                    orderRepository, mock(TransactionTemplate.class), projector, ledger,
+                    mock(OrderExpiryService.class), handles);
+        }
+
+        private void user(long userId, String username, String balance, String usedMargin) {
+            when(userRepository.findById(userId)).thenReturn(Optional.of(User.builder()
+                    .id(userId)
+                    .username(username)
+                    .availableBalance(new BigDecimal(balance))
+                    .usedMargin(new BigDecimal(usedMargin))
+                    .build()));
+        }
+
+        RestingOrder resting(String orderId) {
+            return matchingEngine.read("TCS", book -> book.get(orderId));
+        }
+    }
+
+    private static JournalRecord accept(String orderId, long userId, TransactionType side, OrderType type,
+                                        long price, long trigger, int quantity) {
+        return JournalRecord.builder()
+                .type(JournalRecordType.ACCEPT)
+                .orderId(orderId)
+                .symbol("TCS")
+                .userId(userId)
+                .username(userId == 1L ? "alice" : "bob")
+                .stockId(1L)
+                .transactionType(side)
+                .orderType(type)
+                .quantity(quantity)
+                .price(price)
+                .triggerPrice(trigger)
+                .validity("DAY")
+                .build();
+    }
+
+    @Test
+    void restartRestoresBookLedgerAndHandlesFromSnapshotAndJournal() throws IOException {
+        Node before = new Node("10000.00", "0.00");
+        before.snapshotter.resume(new JournalState());
+
+        before.journal.append(accept("B1", 1L, TransactionType.BUY, OrderType.LIMIT, 10_000, 0, 10));
+        before.matchingEngine.restore(new RestingOrder("B1", "TCS", "alice", TransactionType.BUY,
+                OrderType.LIMIT, 10_000, 10, 10));
+        before.journal.append(accept("STOP1", 2L, TransactionType.SELL, OrderType.SL, 9_400, 9_500, 3));
+        before.stopTriggerEngine.register("TCS", "STOP1", TransactionType.SELL, 9_500);
+        before.matchingEngine.submit(new RestingOrder("S1", "TCS", "bob", TransactionType.SELL,
+                OrderType.LIMIT, 10_000, 4, 4), false);
+        for (int i = 0; i < 60_000; i++) {
+            before.journal.append(JournalRecord.cancel("FILLER-" + i, "INFY", 1));
+        }
+        before.snapshotter.snapshot();
+
+        // after the snapshot, only in the journal
+        before.journal.append(JournalRecord.amend("B1", "TCS", 5, 10_100));
+        before.journal.append(accept("M1", 1L, TransactionType.BUY, OrderType.MARKET, 0, 0, 2));
+
+        long freeMargin = before.ledger.account(1L).getFreeMargin();
+        // 4 bought at 100.00, 5 still reserved at 101.00
+        assertEquals(1_000_000 - 10_000 * 4 - 10_100 * 5, freeMargin);
+        before.journal.close();
+        opened.remove(before.journal);
+
+        // what the projector wrote for alice before the restart
+        Node after = new Node("9600.00", "505.00");
+        after.recovery.recover();
+
+        RestingOrder b1 = after.resting("B1");
+        assertNotNull(b1);
+        assertEquals(5, b1.getRemaining());
+        assertEquals(10_100, b1.getPrice());
+        assertNull(after.resting("S1"));
+        assertEquals(List.of("STOP1"), after.stopTriggerEngine.onPrice("TCS", 9_500));
+
+        OrderHandle handle = after.handles.get("B1");
+        assertEquals(5, handle.getRemaining());
+        assertEquals(4, handle.getFilledQuantity());
+        assertNotNull(after.handles.get("STOP1"));
+        // the market order never executed before the restart and is rejected rather than resent
+        assertNull(after.handles.get("M1"));
+
+        assertEquals(freeMargin, after.ledger.account(1L).getFreeMargin());
+        // the restored reservation is what a cancel releases
+        after.journal.append(JournalRecord.cancel("B1", "TCS", 5));
+        assertEquals(1_000_000 - 10_000 * 4, after.ledger.account(1L).getFreeMargin());
+    }
+
+}
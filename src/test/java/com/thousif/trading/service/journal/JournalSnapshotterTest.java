@@ -0,0 +1,168 @@
+package com.thousif.trading.service.journal;
+
+import com.thousif.trading.enums.OrderType;
+import com.thousif.trading.enums.TransactionType;
+import com.thousif.trading.service.ledger.AccountLedger;
+import com.thousif.trading.service.matching.OrderHandleIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class JournalSnapshotterTest {
+
+    @TempDir
+    Path dir;
+
+    private final JournalProjector projector = mock(JournalProjector.class);
+    private OrderJournal journal;
+    private JournalSnapshotter snapshotter;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        journal = new OrderJournal(projector, mock(AccountLedger.class), mock(OrderHandleIndex.class));
+        ReflectionTestUtils.setField(journal, "directory", dir.resolve("journal").toString());
+        ReflectionTestUtils.setField(journal, "segmentSizeMb", 1);
+        ReflectionTestUtils.setField(journal, "fsync", false);
+        journal.open();
+        snapshotter = snapshotter();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        journal.close();
+    }
+
+    private JournalSnapshotter snapshotter() {
+        JournalSnapshotter created = new JournalSnapshotter(journal, projector);
+        ReflectionTestUtils.setField(created, "directory", dir.resolve("snapshots").toString());
+        ReflectionTestUtils.setField(created, "retained", 2);
+        return created;
+    }
+
+    private static JournalRecord limitBuy(String orderId, long price, int quantity) {
+        return JournalRecord.builder()
+                .type(JournalRecordType.ACCEPT)
+                .orderId(orderId)
+                .symbol("TCS")
+                .userId(1L)
+                .username("alice")
+                .stockId(1L)
+                .transactionType(TransactionType.BUY)
+                .orderType(OrderType.LIMIT)
+                .quantity(quantity)
+                .price(price)
+                .validity("DAY")
+                .build();
+    }
+
+    // cancels of unknown orders change nothing but roll the 1 MB segments over
+    private void fillSegments(int count) {
+        for (int i = 0; i < count; i++) {
+            journal.append(JournalRecord.cancel("FILLER-" + i, "INFY", 1));
+        }
+    }
+
+    private long segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir.resolve("journal"))) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void snapshotFoldsJournalAndCompactsCoveredSegments() throws IOException {
+        when(projector.getReplaySequence()).thenReturn(Long.MAX_VALUE);
+        journal.append(limitBuy("B1", 10_000, 10));
+        fillSegments(60_000);
+        journal.append(JournalRecord.fill("TCS", "B1", "S1", 10_000, 4));
+        journal.append(JournalRecord.amend("B1", "TCS", 5, 10_100));
+        long before = segments();
+        assertTrue(before > 1);
+
+        snapshotter.resume(new JournalState());
+        snapshotter.snapshot();
+
+        assertEquals(1, segments());
+        JournalState loaded = snapshotter().loadLatest();
+        assertEquals(journal.getLastSequence(), loaded.getSequence());
+        assertEquals(1, loaded.getOpenOrders().size());
+        JournalState.OpenOrder order = loaded.getOpenOrders().iterator().next();
+        assertEquals("B1", order.getAccept().getOrderId());
+        assertEquals(5, order.getRemaining());
+        assertEquals(10_100, order.getAccept().getPrice());
+        assertTrue(order.isTriggered());
+    }
+
+    @Test
+    void compactionWaitsForTheProjection() throws IOException {
+        when(projector.getReplaySequence()).thenReturn(0L);
+        journal.append(limitBuy("B1", 10_000, 10));
+        fillSegments(60_000);
+        long before = segments();
+
+        snapshotter.resume(new JournalState());
+        snapshotter.snapshot();
+
+        assertEquals(before, segments());
+        assertEquals(journal.getLastSequence(), snapshotter().loadLatest().getSequence());
+    }
+
+    @Test
+    void corruptLatestSnapshotFallsBackToTheOlderOne() throws IOException {
+        JournalState older = new JournalState(5);
+        older.addOpenOrder(limitBuy("B1", 10_000, 10), 10, true);
+        snapshotter.write(older);
+        snapshotter.write(new JournalState(9));
+
+        Path latest = dir.resolve("snapshots").resolve(String.format("%020d.snapshot", 9));
+        byte[] bytes = Files.readAllBytes(latest);
+        bytes[10] ^= 1;
+        Files.write(latest, bytes);
+
+        JournalState loaded = snapshotter().loadLatest();
+        assertEquals(5, loaded.getSequence());
+        assertEquals(1, loaded.getOpenOrders().size());
+    }
+
+    @Test
+    void readsVersionOneSnapshotsWithMarginAndPositions() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0x534E4150);
+        out.writeInt(1);
+        out.writeLong(7);
+        out.writeInt(0);
+        // one margin reservation, one position
+        out.writeInt(1);
+        out.writeLong(1);
+        out.writeLong(50_000);
+        out.writeInt(1);
+        out.writeLong(1);
+        out.writeUTF("TCS");
+        out.writeLong(4);
+        CRC32C crc = new CRC32C();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+
+        Path snapshots = Files.createDirectories(dir.resolve("snapshots"));
+        Files.write(snapshots.resolve(String.format("%020d.snapshot", 7)), bytes.toByteArray());
+
+        JournalState loaded = snapshotter.loadLatest();
+        assertEquals(7, loaded.getSequence());
+        assertEquals(List.of(), List.copyOf(loaded.getOpenOrders()));
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.thousif.trading.service.journal;
+
+import com.thousif.trading.service.ledger.AccountLedger;
+import com.thousif.trading.service.matching.OrderHandleIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class OrderJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<OrderJournal> opened = new ArrayList<>();
+
+    private OrderJournal open() throws IOException {
+        OrderJournal journal = new OrderJournal(mock(JournalProjector.class), mock(AccountLedger.class),
+                mock(OrderHandleIndex.class));
+        ReflectionTestUtils.setField(journal, "directory", dir.toString());
+        ReflectionTestUtils.setField(journal, "segmentSizeMb", 1);
+        ReflectionTestUtils.setField(journal, "fsync", false);
+        journal.open();
+        opened.add(journal);
+        return journal;
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        for (OrderJournal journal : opened) {
+            journal.close();
+        }
+    }
+
+    private List<JournalRecord> replay(OrderJournal journal, long after) {
+        List<JournalRecord> records = new ArrayList<>();
+        journal.replay(after, records::add);
+        return records;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.sorted().toList();
+        }
+    }
+
+    @Test
+    void rollsSegmentsAndReplaysInOrderAfterRestart() throws IOException {
+        OrderJournal journal = open();
+        int count = 30_000;
+        for (int i = 0; i < count; i++) {
+            journal.append(JournalRecord.fill("TCS", "B" + i, "S" + i, 10_000 + i, 1));
+        }
+        journal.close();
+        assertTrue(segments().size() > 1);
+
+        OrderJournal reopened = open();
+        assertEquals(count, reopened.getLastSequence());
+        List<JournalRecord> all = replay(reopened, 0);
+        assertEquals(count, all.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(i + 1, all.get(i).getSequence());
+        }
+        assertEquals(100, replay(reopened, count - 100).size());
+
+        assertEquals(count + 1, reopened.append(JournalRecord.cancel("B0", "TCS", 1)).getSequence());
+    }
+
+    @Test
+    void corruptTailIsCutOffAndOverwritten() throws IOException {
+        OrderJournal journal = open();
+        for (int i = 0; i < 5; i++) {
+            journal.append(JournalRecord.fill("TCS", "B" + i, "S" + i, 10_000, 1));
+        }
+        journal.close();
+        // flip a byte in the last record's body, as a torn write would leave it
+        corruptLastRecord(segments().get(0));
+
+        OrderJournal reopened = open();
+        assertEquals(4, reopened.getLastSequence());
+        assertEquals(4, replay(reopened, 0).size());
+
+        reopened.append(JournalRecord.cancel("B0", "TCS", 1));
+        List<JournalRecord> records = replay(reopened, 0);
+        assertEquals(5, records.size());
+        assertEquals(JournalRecordType.CANCEL, records.get(4).getType());
+    }
+
+    @Test
+    void lengthRunningPastTheSegmentEndsReplay() throws IOException {
+        OrderJournal journal = open();
+        for (int i = 0; i < 3; i++) {
+            journal.append(JournalRecord.fill("TCS", "B" + i, "S" + i, 10_000, 1));
+        }
+        journal.close();
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long last = lastRecordOffset(channel);
+            channel.write(ByteBuffer.allocate(4).putInt(0, Integer.MAX_VALUE), last);
+        }
+
+        assertEquals(2, open().getLastSequence());
+    }
+
+    private void corruptLastRecord(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long last = lastRecordOffset(channel);
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, last + 12);
+            b.put(0, (byte) (b.get(0) ^ 0xFF)).rewind();
+            channel.write(b, last + 12);
+        }
+    }
+
+    // walks the [length][crc][body] entries up to the zero length that ends them
+    private long lastRecordOffset(FileChannel channel) throws IOException {
+        long position = 0;
+        long last = -1;
+        ByteBuffer length = ByteBuffer.allocate(4);
+        while (true) {
+            length.clear();
+            channel.read(length, position);
+            int size = length.getInt(0);
+            if (size <= 0) {
+                return last;
+            }
+            last = position;
+            position += 8 + size;
+        }
+    }
+
+}
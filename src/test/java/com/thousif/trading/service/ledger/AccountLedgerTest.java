@@ -0,0 +1,132 @@
+package com.thousif.trading.service.ledger;
+
+import com.thousif.trading.entity.User;
+import com.thousif.trading.enums.OrderType;
+import com.thousif.trading.enums.TransactionType;
+import com.thousif.trading.exception.InsufficientFundsException;
+import com.thousif.trading.repository.PortfolioRepository;
+import com.thousif.trading.repository.UserRepository;
+import com.thousif.trading.service.journal.JournalRecord;
+import com.thousif.trading.service.journal.JournalRecordType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AccountLedgerTest {
+
+    private AccountLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        User user = User.builder()
+                .id(1L)
+                .username("trader")
+                .availableBalance(new BigDecimal("1000.00"))
+                .usedMargin(BigDecimal.ZERO)
+                .build();
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findByUsername("trader")).thenReturn(Optional.of(user));
+        when(userRepository.findById(1L)).thenReturn(Optional.of(user));
+        PortfolioRepository portfolioRepository = mock(PortfolioRepository.class);
+        when(portfolioRepository.findHoldings(1L)).thenReturn(List.of());
+
+        ledger = new AccountLedger(userRepository, portfolioRepository);
+    }
+
+    private AccountLedger.Hold buy(String orderId, long unitMargin, int quantity) {
+        return new AccountLedger.Hold(orderId, "TCS", true, unitMargin, quantity);
+    }
+
+    @Test
+    void concurrentReservesNeverOversubscribe() throws Exception {
+        AccountLedger.Account account = ledger.account("trader");
+        AtomicInteger accepted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String orderId = "O" + i;
+            futures.add(pool.submit(() -> {
+                try {
+                    // 30.00 each against a 1000.00 balance
+                    ledger.reserve(account, List.of(buy(orderId, 3_000, 1)));
+                    accepted.incrementAndGet();
+                } catch (InsufficientFundsException ignored) {
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(33, accepted.get());
+        assertEquals(1_000, account.getFreeMargin());
+    }
+
+    @Test
+    void fillDebitsTradedValueAndCancelReleasesTheRest() {
+        AccountLedger.Account account = ledger.account("trader");
+        ledger.reserve(account, List.of(buy("B1", 10_000, 5)));
+        assertEquals(50_000, account.getFreeMargin());
+
+        // filled 2 @ 95.00, below the 100.00 limit that was blocked
+        ledger.apply(JournalRecord.fill("TCS", "B1", null, 9_500, 2));
+        assertEquals(new BigDecimal("810.00"), account.getAvailableBalance());
+        assertEquals(new BigDecimal("300.00"), account.getUsedMarginAmount());
+
+        ledger.apply(JournalRecord.cancel("B1", "TCS", 3));
+        assertEquals(new BigDecimal("0.00"), account.getUsedMarginAmount());
+        assertEquals(81_000, account.getFreeMargin());
+    }
+
+    @Test
+    void replayedAcceptBlocksMarginOnce() {
+        JournalRecord accept = JournalRecord.builder()
+                .type(JournalRecordType.ACCEPT)
+                .orderId("B2")
+                .symbol("TCS")
+                .userId(1L)
+                .transactionType(TransactionType.BUY)
+                .orderType(OrderType.LIMIT)
+                .price(20_000)
+                .quantity(2)
+                .build();
+
+        AccountLedger.Account account = ledger.account("trader");
+        ledger.reserve(account, List.of(buy("B2", 20_000, 2)));
+        ledger.apply(accept);
+
+        assertEquals(new BigDecimal("400.00"), account.getUsedMarginAmount());
+    }
+
+    @Test
+    void amendResizesReservationAndCancelGroupReleasesIt() {
+        AccountLedger.Account account = ledger.account("trader");
+        ledger.reserve(account, List.of(buy("B3", 10_000, 3), buy("B4", 10_000, 2)));
+        assertEquals(new BigDecimal("500.00"), account.getUsedMarginAmount());
+
+        // 3 @ 100.00 repriced to 2 @ 150.00, then replayed by the journal hook without effect
+        ledger.amend(account, "B3", 15_000, 2);
+        ledger.apply(JournalRecord.amend("B3", "TCS", 2, 15_000));
+        assertEquals(new BigDecimal("500.00"), account.getUsedMarginAmount());
+        assertThrows(InsufficientFundsException.class, () -> ledger.amend(account, "B4", 0, 100));
+
+        ledger.applyAll(List.of(JournalRecord.cancel("B3", "TCS", 2), JournalRecord.cancel("B4", "TCS", 2)));
+        assertEquals(new BigDecimal("0.00"), account.getUsedMarginAmount());
+        assertEquals(100_000, account.getFreeMargin());
+    }
+
+}
@@ -0,0 +1,39 @@
+package com.thousif.trading.service.market;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CandleSeriesTest {
+
+    @Test
+    void aggregatesTicksIntoBarsAndWrapsAtCapacity() {
+        CandleSeries series = new CandleSeries(60_000, 0, 2);
+        series.update(0, 100, 5);
+        series.update(10_000, 105, 1);
+        series.update(59_999, 98, 2);
+
+        assertEquals(new CandleSeries.Candle(0, 100, 105, 98, 98, 8), series.current());
+
+        series.update(60_000, 99, 1);
+        series.update(185_000, 101, 1);
+        assertFalse(series.update(70_000, 50, 1));
+
+        List<CandleSeries.Candle> bars = series.latest(5);
+        assertEquals(2, bars.size());
+        assertEquals(60_000L, bars.get(0).start());
+        assertEquals(180_000L, bars.get(1).start());
+    }
+
+    @Test
+    void dailyBarsStartAtLocalMidnight() {
+        long ist = 19_800_000L;
+        CandleSeries series = new CandleSeries(86_400_000L, ist, 3);
+        series.update(86_400_000L, 100, 0);
+
+        assertEquals(86_400_000L - ist, series.current().start());
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.thousif.trading.service.market;
+
+import com.thousif.trading.dto.response.CandleResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class CandleServiceTest {
+
+    private final CandleService service = new CandleService(mock(SimpMessagingTemplate.class));
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "capacity", 10);
+        ReflectionTestUtils.setField(service, "zoneId", "UTC");
+        service.init();
+    }
+
+    @Test
+    void firstTickSeedsTheCumulativeVolume() {
+        service.onPriceTick(new PriceTickEvent("TCS", 10_000, 1_000_000, 0));
+        service.onPriceTick(new PriceTickEvent("TCS", 10_010, 1_000_250, 500));
+        service.onPriceTick(new PriceTickEvent("TCS", 10_020, 1_000_300, 1_500));
+
+        List<CandleResponse> seconds = service.getCandles("TCS", "1s", 10);
+        assertEquals(2, seconds.size());
+        assertEquals(250, seconds.get(0).getVolume());
+        assertEquals(50, seconds.get(1).getVolume());
+        assertEquals(300, service.getCandles("TCS", "1m", 1).get(0).getVolume());
+    }
+
+}
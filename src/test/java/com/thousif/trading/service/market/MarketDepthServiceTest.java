@@ -0,0 +1,74 @@
+package com.thousif.trading.service.market;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.thousif.trading.enums.OrderType;
+import com.thousif.trading.enums.TransactionType;
+import com.thousif.trading.exception.TradingPlatformException;
+import com.thousif.trading.service.journal.OrderJournal;
+import com.thousif.trading.service.market.ticks.TickStore;
+import com.thousif.trading.service.matching.MatchingEngine;
+import com.thousif.trading.service.matching.RestingOrder;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class MarketDepthServiceTest {
+
+    private final MatchingEngine matchingEngine = new MatchingEngine(mock(OrderJournal.class), mock(TickStore.class));
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MarketDepthService service = new MarketDepthService(matchingEngine,
+            mock(SimpMessagingTemplate.class), objectMapper);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "maxLevels", 20);
+        ReflectionTestUtils.setField(service, "topicLevels", 10);
+        for (int i = 0; i < 30; i++) {
+            matchingEngine.restore(new RestingOrder("B" + i, "TCS", "alice", TransactionType.BUY,
+                    OrderType.LIMIT, 10_000 - i, 1, 1));
+        }
+    }
+
+    private Map<?, ?> snapshots() {
+        return (Map<?, ?>) ReflectionTestUtils.getField(service, "snapshots");
+    }
+
+    @Test
+    void levelsAreRoundedUpToADepthSize() throws IOException {
+        byte[] three = service.getDepth("TCS", 3);
+        assertSame(three, service.getDepth("TCS", 5));
+        assertEquals(5, objectMapper.readTree(three).get("bids").size());
+
+        byte[] seven = service.getDepth("TCS", 7);
+        assertSame(seven, service.getDepth("TCS", 10));
+        JsonNode capped = objectMapper.readTree(service.getDepth("TCS", 1_000));
+        assertEquals(20, capped.get("bids").size());
+        assertEquals(3, snapshots().size());
+    }
+
+    @Test
+    void symbolsWithoutABookAndNonPositiveLevelsAreRejected() {
+        assertThrows(TradingPlatformException.class, () -> service.getDepth("NOPE", 10));
+        assertThrows(TradingPlatformException.class, () -> service.getDepth("TCS", 0));
+        assertTrue(snapshots().isEmpty());
+    }
+
+    @Test
+    void aBookChangeReplacesTheCachedBytes() {
+        byte[] before = service.getDepth("TCS", 10);
+        matchingEngine.restore(new RestingOrder("B-NEW", "TCS", "alice", TransactionType.BUY,
+                OrderType.LIMIT, 10_001, 1, 1));
+
+        assertNotSame(before, service.getDepth("TCS", 10));
+        assertEquals(1, snapshots().size());
+    }
+
+}
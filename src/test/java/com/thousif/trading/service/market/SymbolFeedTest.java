@@ -0,0 +1,29 @@
+package com.thousif.trading.service.market;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SymbolFeedTest {
+
+    @Test
+    void deltasCarryOnlyChangedFieldsInSequence() {
+        SymbolFeed feed = new SymbolFeed("TCS");
+        Map<String, Object> first = feed.advance(Map.of("price", 100, "exchange", "NSE"));
+        Map<String, Object> second = feed.advance(Map.of("price", 101, "exchange", "NSE"));
+
+        assertEquals(0L, first.get("prevSeq"));
+        assertEquals("NSE", first.get("exchange"));
+        assertEquals(1L, second.get("prevSeq"));
+        assertEquals(2L, second.get("seq"));
+        assertEquals(101, second.get("price"));
+        assertFalse(second.containsKey("exchange"));
+
+        Map<String, Object> snapshot = feed.snapshot();
+        assertEquals(2L, snapshot.get("seq"));
+        assertEquals("NSE", snapshot.get("exchange"));
+    }
+
+}
@@ -0,0 +1,25 @@
+package com.thousif.trading.service.market;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickCodecTest {
+
+    @Test
+    void roundTripsFixedLayout() {
+        Instant at = Instant.ofEpochSecond(1_760_000_000L, 123_456_789);
+        byte[] frame = TickCodec.encode(42, 123_450, -1_275, 9_000_000_000L, at);
+
+        assertEquals(TickCodec.LENGTH, frame.length);
+        TickCodec.Tick tick = TickCodec.decode(frame);
+        assertEquals(42, tick.stockId());
+        assertEquals(123_450L, tick.price());
+        assertEquals(-1_275L, tick.change());
+        assertEquals(9_000_000_000L, tick.volume());
+        assertEquals(1_760_000_000_123_456_789L, tick.epochNanos());
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.thousif.trading.service.market.ticks;
+
+import com.thousif.trading.dto.response.TickHistoryResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TickStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private TickStore store;
+
+    private final long day = LocalDate.of(2026, 3, 2).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+
+    @BeforeEach
+    void setUp() {
+        store = newStore();
+    }
+
+    private TickStore newStore() {
+        TickStore tickStore = new TickStore();
+        ReflectionTestUtils.setField(tickStore, "enabled", true);
+        ReflectionTestUtils.setField(tickStore, "directory", dir.toString());
+        ReflectionTestUtils.setField(tickStore, "initialRows", 2);
+        ReflectionTestUtils.setField(tickStore, "zoneId", "UTC");
+        tickStore.open();
+        return tickStore;
+    }
+
+    @Test
+    void rangeQueryFindsRowsByTimeAcrossGrowthAndDays() {
+        for (int i = 0; i < 10; i++) {
+            store.append(TickStore.Stream.TICKS, "TCS", day + i * 1_000L, 10_000 + i, i);
+        }
+        store.append(TickStore.Stream.TICKS, "TCS", day + 86_400_000L, 20_000, 1);
+
+        List<TickSlice> slices = store.query(TickStore.Stream.TICKS, "TCS", day + 2_500L, day + 5_000L);
+        assertEquals(1, slices.size());
+        TickSlice slice = slices.get(0);
+        assertEquals(3, slice.size());
+        assertEquals(day + 3_000L, slice.times().get(0));
+        assertEquals(10_005L, slice.prices().get(2));
+
+        List<TickSlice> both = store.query(TickStore.Stream.TICKS, "TCS", day, day + 86_400_000L);
+        assertEquals(2, both.size());
+        assertEquals(20_000L, both.get(1).prices().get(0));
+        assertTrue(store.query(TickStore.Stream.TRADES, "TCS", day, day + 86_400_000L).isEmpty());
+    }
+
+    @Test
+    void reopenedStoreReadsAndAppendsAfterExistingRows() {
+        store.append(TickStore.Stream.TRADES, "INFY", day + 1_000L, 15_000, 10);
+        store.append(TickStore.Stream.TRADES, "INFY", day + 2_000L, 15_010, 5);
+        store.close();
+
+        TickStore reopened = newStore();
+        assertEquals(2, reopened.query(TickStore.Stream.TRADES, "INFY", day, day + 10_000L).get(0).size());
+
+        reopened.append(TickStore.Stream.TRADES, "INFY", day + 3_000L, 15_020, 1);
+        TickSlice slice = reopened.query(TickStore.Stream.TRADES, "INFY", day, day + 10_000L).get(0);
+        assertEquals(3, slice.size());
+        assertEquals(15_020L, slice.prices().get(2));
+    }
+
+    @Test
+    void unboundedRangeVisitsOnlyStoredDaysAndStopsAtTheLimit() {
+        store.append(TickStore.Stream.TICKS, "TCS", day, 10_000, 1);
+        store.append(TickStore.Stream.TICKS, "TCS", day + 1_000L, 10_001, 1);
+        store.append(TickStore.Stream.TICKS, "TCS", day + 30 * 86_400_000L, 10_002, 1);
+        store.append(TickStore.Stream.TICKS, "TCS", day + 400 * 86_400_000L, 10_003, 1);
+
+        assertEquals(3, store.query(TickStore.Stream.TICKS, "TCS", 0, Long.MAX_VALUE).size());
+        List<TickSlice> first = store.query(TickStore.Stream.TICKS, "TCS", 0, Long.MAX_VALUE, 1);
+        assertEquals(1, first.size());
+        assertEquals(10_000L, first.get(0).prices().get(0));
+
+        TickHistoryResponse history = store.getHistory("TCS", "ticks", 0, Long.MAX_VALUE, 3);
+        assertEquals(List.of(day, day + 1_000L, day + 30 * 86_400_000L), history.getTimes());
+        assertTrue(history.isTruncated());
+    }
+
+}
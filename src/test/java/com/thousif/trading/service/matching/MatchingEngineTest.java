@@ -0,0 +1,54 @@
+package com.thousif.trading.service.matching;
+
+import com.thousif.trading.enums.OrderType;
+import com.thousif.trading.enums.TransactionType;
+import com.thousif.trading.service.journal.JournalRecord;
+import com.thousif.trading.service.journal.JournalRecordType;
+import com.thousif.trading.service.journal.OrderJournal;
+import com.thousif.trading.service.market.ticks.TickStore;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MatchingEngineTest {
+
+    private final OrderJournal journal = mock(OrderJournal.class);
+    private final MatchingEngine engine = new MatchingEngine(journal, mock(TickStore.class));
+
+    private RestingOrder order(String id, TransactionType side, long price, int qty) {
+        return new RestingOrder(id, "TCS", "user-" + id, side, OrderType.LIMIT, price, qty, qty);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void sweepAcrossLevelsIsJournaledAsOneGroup() {
+        when(journal.appendAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        engine.restore(order("S1", TransactionType.SELL, 10_000, 2));
+        engine.restore(order("S2", TransactionType.SELL, 10_100, 2));
+        engine.restore(order("S3", TransactionType.SELL, 10_200, 2));
+
+        List<Fill> fills = engine.submit(order("B1", TransactionType.BUY, 10_200, 8), true);
+
+        assertEquals(3, fills.size());
+        ArgumentCaptor<List<JournalRecord>> group = ArgumentCaptor.forClass(List.class);
+        verify(journal, times(1)).appendAll(group.capture());
+        verify(journal, never()).append(any());
+        assertEquals(List.of(JournalRecordType.FILL, JournalRecordType.FILL, JournalRecordType.FILL,
+                JournalRecordType.CANCEL), group.getValue().stream().map(JournalRecord::getType).toList());
+        assertEquals(2, group.getValue().get(3).getQuantity());
+    }
+
+    @Test
+    void unfilledImmediateOrCancelOnlyJournalsItsCancel() {
+        engine.submit(order("B1", TransactionType.BUY, 10_000, 5), true);
+
+        verify(journal).append(argThat(record -> record.getType() == JournalRecordType.CANCEL));
+        verify(journal, never()).appendAll(any());
+    }
+
+}
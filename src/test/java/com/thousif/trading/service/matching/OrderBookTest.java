@@ -0,0 +1,154 @@
+package com.thousif.trading.service.matching;
+
+import com.thousif.trading.enums.OrderType;
+import com.thousif.trading.enums.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderBookTest {
+
+    private final OrderBook book = new OrderBook("TCS");
+
+    private RestingOrder limit(String id, TransactionType side, long price, int qty) {
+        return new RestingOrder(id, "TCS", "user-" + id, side, OrderType.LIMIT, price, qty, qty);
+    }
+
+    @Test
+    void restsWhenNothingCrosses() {
+        assertTrue(book.match(limit("B1", TransactionType.BUY, 10_000, 10)).isEmpty());
+        assertTrue(book.match(limit("S1", TransactionType.SELL, 10_100, 10)).isEmpty());
+
+        assertEquals(10_000L, book.bestBid());
+        assertEquals(10_100L, book.bestAsk());
+        assertEquals(2, book.size());
+    }
+
+    @Test
+    void fillsAtMakerPriceInPriceThenTimeOrder() {
+        book.match(limit("S1", TransactionType.SELL, 10_100, 5));
+        book.match(limit("S2", TransactionType.SELL, 10_000, 5));
+        book.match(limit("S3", TransactionType.SELL, 10_000, 5));
+
+        List<Fill> fills = book.match(limit("B1", TransactionType.BUY, 10_100, 12));
+
+        assertEquals(3, fills.size());
+        assertEquals("S2", fills.get(0).sellOrderId());
+        assertEquals(10_000L, fills.get(0).price());
+        assertEquals("S3", fills.get(1).sellOrderId());
+        assertEquals("S1", fills.get(2).sellOrderId());
+        assertEquals(10_100L, fills.get(2).price());
+        assertEquals(2, fills.get(2).quantity());
+
+        assertNull(book.bestBid());
+        assertEquals(3, book.get("S1").getRemaining());
+    }
+
+    @Test
+    void cancelUnlinksOrderAndDropsEmptyLevel() {
+        book.match(limit("B1", TransactionType.BUY, 10_000, 5));
+        book.match(limit("B2", TransactionType.BUY, 9_900, 5));
+
+        assertNotNull(book.cancel("B1"));
+        assertNull(book.cancel("B1"));
+        assertEquals(9_900L, book.bestBid());
+        assertFalse(book.contains("B1"));
+    }
+
+    @Test
+    void reduceKeepsQueuePriority() {
+        book.match(limit("S1", TransactionType.SELL, 10_000, 10));
+        book.match(limit("S2", TransactionType.SELL, 10_000, 10));
+
+        book.reduce("S1", 4);
+        assertEquals(4, book.get("S1").getRemaining());
+        assertEquals(4, book.get("S1").getQuantity());
+        assertThrows(IllegalArgumentException.class, () -> book.reduce("S1", 4));
+
+        List<Fill> fills = book.match(limit("B1", TransactionType.BUY, 10_000, 6));
+
+        assertEquals(2, fills.size());
+        assertEquals("S1", fills.get(0).sellOrderId());
+        assertEquals(4, fills.get(0).quantity());
+        assertEquals("S2", fills.get(1).sellOrderId());
+        assertEquals(8, book.get("S2").getRemaining());
+    }
+
+    @Test
+    void icebergShowsOnlyItsSliceAndRequeuesWhenItFills() {
+        book.match(new RestingOrder("S1", "TCS", "user-S1", TransactionType.SELL, OrderType.LIMIT,
+                10_000, 10, 10, 3));
+        book.match(limit("S2", TransactionType.SELL, 10_000, 5));
+        assertEquals(8, book.getLevel(false, 10_000).getTotalQuantity());
+
+        List<Fill> fills = book.match(limit("B1", TransactionType.BUY, 10_000, 6));
+
+        // the 3 lot slice fills first, the replenished slice queues behind S2
+        assertEquals(2, fills.size());
+        assertEquals("S1", fills.get(0).sellOrderId());
+        assertEquals(3, fills.get(0).quantity());
+        assertEquals("S2", fills.get(1).sellOrderId());
+        assertEquals(3, fills.get(1).quantity());
+        assertEquals(7, book.get("S1").getRemaining());
+        assertEquals(3, book.get("S1").getVisible());
+        assertEquals(5, book.getLevel(false, 10_000).getTotalQuantity());
+    }
+
+    @Test
+    void sweepStopsAtProtectionPriceAndNeverRests() {
+        book.match(limit("S1", TransactionType.SELL, 10_000, 2));
+        book.match(limit("S2", TransactionType.SELL, 10_050, 2));
+        book.match(limit("S3", TransactionType.SELL, 11_000, 2));
+
+        RestingOrder market = new RestingOrder("B1", "TCS", "user-B1", TransactionType.BUY, OrderType.MARKET,
+                10_500, 10, 10);
+        List<Fill> fills = book.match(market, false);
+
+        assertEquals(2, fills.size());
+        assertEquals(10_050L, fills.get(1).price());
+        assertEquals(6, market.getRemaining());
+        assertFalse(book.contains("B1"));
+        assertEquals(11_000L, book.bestAsk());
+    }
+
+    @Test
+    void auctionUncrossesAtPriceMaximisingVolume() {
+        book.startAuction();
+        assertTrue(book.match(limit("S1", TransactionType.SELL, 9_800, 4)).isEmpty());
+        book.match(limit("S2", TransactionType.SELL, 10_000, 6));
+        book.match(limit("S3", TransactionType.SELL, 10_200, 5));
+        book.match(limit("B1", TransactionType.BUY, 10_100, 5));
+        book.match(limit("B2", TransactionType.BUY, 10_000, 5));
+        book.match(limit("B3", TransactionType.BUY, 9_900, 10));
+        assertEquals(10_100L, book.bestBid());
+
+        List<Fill> fills = book.uncross();
+
+        assertEquals(10, fills.stream().mapToInt(Fill::quantity).sum());
+        assertTrue(fills.stream().allMatch(f -> f.price() == 10_000L));
+        assertFalse(book.isAuction());
+        assertEquals(10_000L, book.getLastPrice());
+        assertEquals(9_900L, book.bestBid());
+        assertEquals(10_200L, book.bestAsk());
+    }
+
+    @Test
+    void depthAggregatesLevelsAndVersionTracksChanges() {
+        book.match(limit("B1", TransactionType.BUY, 9_900, 5));
+        book.match(limit("B2", TransactionType.BUY, 9_900, 3));
+        book.match(limit("B3", TransactionType.BUY, 9_800, 4));
+        book.match(limit("S1", TransactionType.SELL, 10_000, 2));
+        long version = book.getVersion();
+
+        assertEquals(List.of(new BookLevel(9_900, 8, 2)), book.depth(true, 1));
+        assertEquals(List.of(new BookLevel(10_000, 2, 1)), book.depth(false, 5));
+        assertEquals(version, book.getVersion());
+
+        book.match(limit("S2", TransactionType.SELL, 9_900, 5));
+        assertTrue(book.getVersion() > version);
+        assertEquals(new BookLevel(9_900, 3, 1), book.depth(true, 2).get(0));
+    }
+
+}
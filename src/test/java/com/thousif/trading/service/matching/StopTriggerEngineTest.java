@@ -0,0 +1,51 @@
+package com.thousif.trading.service.matching;
+
+import com.thousif.trading.enums.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StopTriggerEngineTest {
+
+    private final StopTriggerEngine engine = new StopTriggerEngine();
+
+    @Test
+    void buyStopsFireFromTheLowestTriggerUpToThePrice() {
+        engine.register("TCS", "B105", TransactionType.BUY, 10_500);
+        engine.register("TCS", "B100", TransactionType.BUY, 10_000);
+        engine.register("TCS", "B101", TransactionType.BUY, 10_100);
+        engine.register("TCS", "B101b", TransactionType.BUY, 10_100);
+
+        assertEquals(List.of("B100", "B101", "B101b"), engine.onPrice("TCS", 10_200));
+        // popped, a second tick does not fire them again
+        assertTrue(engine.onPrice("TCS", 10_200).isEmpty());
+        assertFalse(engine.cancel("TCS", "B100"));
+        assertTrue(engine.cancel("TCS", "B105"));
+    }
+
+    @Test
+    void priceEqualToTheTriggerFires() {
+        engine.register("TCS", "B1", TransactionType.BUY, 10_000);
+        engine.register("TCS", "S1", TransactionType.SELL, 9_000);
+
+        assertEquals(List.of("B1"), engine.onPrice("TCS", 10_000));
+        assertEquals(List.of("S1"), engine.onPrice("TCS", 9_000));
+    }
+
+    @Test
+    void buyStopsFireOnRisesAndSellStopsOnFalls() {
+        engine.register("TCS", "B1", TransactionType.BUY, 10_100);
+        engine.register("TCS", "S95", TransactionType.SELL, 9_500);
+        engine.register("TCS", "S99", TransactionType.SELL, 9_900);
+
+        // between the triggers nothing fires
+        assertTrue(engine.onPrice("TCS", 10_000).isEmpty());
+        // sell stops fire from the highest trigger down
+        assertEquals(List.of("S99", "S95"), engine.onPrice("TCS", 9_400));
+        assertEquals(List.of("B1"), engine.onPrice("TCS", 10_150));
+        assertTrue(engine.onPrice("INFY", 10_150).isEmpty());
+    }
+
+}
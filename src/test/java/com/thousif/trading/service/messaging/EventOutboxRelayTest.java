@@ -0,0 +1,107 @@
+package com.thousif.trading.service.messaging;
+
+import com.thousif.trading.entity.EventOutbox;
+import com.thousif.trading.repository.EventOutboxRepository;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class EventOutboxRelayTest {
+
+    private static EmbeddedKafkaKraftBroker broker;
+
+    @BeforeAll
+    static void startBroker() {
+        broker = new EmbeddedKafkaKraftBroker(1, 3, KafkaEventProducer.ORDER_TOPIC);
+        broker.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopBroker() {
+        broker.destroy();
+    }
+
+    @Test
+    void publishesOutboxKeyedByOrderIdAndDeletesAckedRows() {
+        List<EventOutbox> outbox = IntStream.range(0, 6)
+                .mapToObj(i -> EventOutbox.builder()
+                        .id((long) i)
+                        .topic(KafkaEventProducer.ORDER_TOPIC)
+                        .eventKey("ORD-" + (i % 2))
+                        .payload("{\"seq\":" + i + "}")
+                        .createdAt(LocalDateTime.now())
+                        .build())
+                .toList();
+
+        EventOutboxRepository repository = mock(EventOutboxRepository.class);
+        when(repository.findAllByOrderByIdAsc(any(Pageable.class))).thenReturn(outbox, List.of());
+
+        Map<String, Object> producerProps = new HashMap<>(KafkaTestUtils.producerProps(broker));
+        producerProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        producerProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        producerProps.put(ProducerConfig.LINGER_MS_CONFIG, 20);
+        producerProps.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4");
+        DefaultKafkaProducerFactory<String, String> producerFactory = new DefaultKafkaProducerFactory<>(producerProps);
+
+        EventOutboxRelay relay = new EventOutboxRelay(repository, new KafkaTemplate<>(producerFactory));
+        ReflectionTestUtils.setField(relay, "kafkaEnabled", true);
+        ReflectionTestUtils.setField(relay, "batchSize", 6);
+        ReflectionTestUtils.setField(relay, "sendTimeoutMillis", 10_000L);
+
+        relay.drain();
+        producerFactory.destroy();
+
+        verify(repository).deleteAllByIdInBatch(List.of(0L, 1L, 2L, 3L, 4L, 5L));
+
+        Map<String, Object> consumerProps = KafkaTestUtils.consumerProps("relay-test", "false", broker);
+        consumerProps.put("auto.offset.reset", "earliest");
+        try (Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(consumerProps,
+                new StringDeserializer(), new StringDeserializer()).createConsumer()) {
+            broker.consumeFromAnEmbeddedTopic(consumer, KafkaEventProducer.ORDER_TOPIC);
+
+            List<ConsumerRecord<String, String>> received = new ArrayList<>();
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (received.size() < 6 && System.currentTimeMillis() < deadline) {
+                ConsumerRecords<String, String> records = consumer.poll(Duration.ofMillis(200));
+                records.forEach(received::add);
+            }
+
+            assertEquals(6, received.size());
+            // one partition per key, in outbox order
+            for (String key : List.of("ORD-0", "ORD-1")) {
+                List<ConsumerRecord<String, String>> forKey = received.stream()
+                        .filter(record -> record.key().equals(key))
+                        .toList();
+                assertEquals(1, forKey.stream().map(ConsumerRecord::partition).distinct().count());
+                assertEquals(forKey.stream().map(ConsumerRecord::offset).sorted().toList(),
+                        forKey.stream().map(ConsumerRecord::offset).toList());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.thousif.trading.service.notification;
+
+import com.thousif.trading.entity.NotificationOutbox;
+import com.thousif.trading.entity.User;
+import com.thousif.trading.enums.NotificationType;
+import com.thousif.trading.repository.NotificationOutboxRepository;
+import com.thousif.trading.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class NotificationRelayTest {
+
+    private final NotificationOutboxRepository outboxRepository = mock(NotificationOutboxRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final NotificationService notificationService = mock(NotificationService.class);
+    private final NotificationRelay relay = new NotificationRelay(outboxRepository, userRepository,
+            notificationService);
+
+    // the outbox table: rows leave it only through deleteAllByIdInBatch
+    private final List<NotificationOutbox> outbox = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(relay, "batchSize", 2);
+        ReflectionTestUtils.setField(relay, "maxAttempts", 3);
+
+        when(outboxRepository.findAllByOrderByIdAsc(any(Pageable.class))).thenAnswer(invocation -> {
+            Pageable page = invocation.getArgument(0);
+            return List.copyOf(outbox.subList(0, Math.min(page.getPageSize(), outbox.size())));
+        });
+        doAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            outbox.removeIf(row -> ids.contains(row.getId()));
+            return null;
+        }).when(outboxRepository).deleteAllByIdInBatch(any());
+        when(userRepository.findAllById(any())).thenAnswer(invocation -> {
+            List<User> users = new ArrayList<>();
+            for (Long id : invocation.<Iterable<Long>>getArgument(0)) {
+                if (id < 100) {
+                    users.add(User.builder().id(id).username("user" + id).build());
+                }
+            }
+            return users;
+        });
+    }
+
+    private NotificationOutbox row(long id, long userId) {
+        NotificationOutbox row = NotificationOutbox.builder()
+                .id(id)
+                .type(NotificationType.ORDER_PLACED)
+                .userId(userId)
+                .orderId("ORD-" + id)
+                .createdAt(LocalDateTime.now())
+                .build();
+        outbox.add(row);
+        return row;
+    }
+
+    private List<Long> remaining() {
+        return outbox.stream().map(NotificationOutbox::getId).collect(Collectors.toList());
+    }
+
+    @Test
+    void deliversEveryRowAcrossBatchesAndDeletesIt() {
+        for (long id = 1; id <= 5; id++) {
+            row(id, id);
+        }
+
+        relay.drain();
+
+        verify(notificationService, times(5)).deliver(any(), any());
+        verify(notificationService).deliver(argThat(row -> row.getId() == 3L),
+                argThat(user -> user.getId() == 3L));
+        assertTrue(outbox.isEmpty());
+        verify(outboxRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void failedDeliveryKeepsTheRowAndCountsTheAttempt() {
+        row(1, 1);
+        NotificationOutbox failing = row(2, 2);
+        row(3, 3);
+        doThrow(new IllegalStateException("mail executor rejected the task"))
+                .when(notificationService).deliver(same(failing), any());
+
+        relay.drain();
+
+        // the row that failed stays for the next poll, the rest of its batch is gone
+        assertEquals(List.of(2L, 3L), remaining());
+        assertEquals(1, failing.getAttempts());
+        verify(outboxRepository).saveAll(List.of(failing));
+        verify(notificationService, never()).deliver(argThat(row -> row.getId() == 3L), any());
+
+        relay.drain();
+
+        assertEquals(List.of(2L), remaining());
+        assertEquals(2, failing.getAttempts());
+    }
+
+    @Test
+    void rowIsDroppedOnceItRunsOutOfAttempts() {
+        NotificationOutbox failing = row(1, 1);
+        doThrow(new IllegalStateException("broken template")).when(notificationService).deliver(any(), any());
+
+        relay.drain();
+        relay.drain();
+        assertEquals(List.of(1L), remaining());
+
+        relay.drain();
+
+        assertTrue(outbox.isEmpty());
+        assertEquals(3, failing.getAttempts());
+        verify(notificationService, times(3)).deliver(any(), any());
+    }
+
+    @Test
+    void rowForAnUnknownUserIsDroppedWithoutDelivery() {
+        row(1, 100);
+
+        relay.drain();
+
+        assertTrue(outbox.isEmpty());
+        verifyNoInteractions(notificationService);
+    }
+
+}
@@ -0,0 +1,261 @@
+package com.thousif.trading.service.trading;
+
+import com.thousif.trading.dto.request.OrderRequest;
+import com.thousif.trading.dto.response.OrderResponse;
+import com.thousif.trading.entity.Order;
+import com.thousif.trading.entity.Stock;
+import com.thousif.trading.entity.User;
+import com.thousif.trading.enums.OrderStatus;
+import com.thousif.trading.enums.OrderType;
+import com.thousif.trading.enums.TransactionType;
+import com.thousif.trading.exception.OrderValidationException;
+import com.thousif.trading.metrics.OrderMetrics;
+import com.thousif.trading.repository.OrderRepository;
+import com.thousif.trading.repository.PortfolioRepository;
+import com.thousif.trading.repository.UserRepository;
+import com.thousif.trading.service.auth.UserService;
+import com.thousif.trading.service.cache.ClientOrderIdCache;
+import com.thousif.trading.service.expiry.OrderExpiryService;
+import com.thousif.trading.service.id.IdGenerator;
+import com.thousif.trading.service.journal.JournalProjector;
+import com.thousif.trading.service.journal.JournalRecord;
+import com.thousif.trading.service.journal.JournalRecordType;
+import com.thousif.trading.service.journal.OrderJournal;
+import com.thousif.trading.service.ledger.AccountLedger;
+import com.thousif.trading.service.market.ticks.TickStore;
+import com.thousif.trading.service.matching.MatchingEngine;
+import com.thousif.trading.service.matching.OrderHandleIndex;
+import com.thousif.trading.service.matching.RestingOrder;
+import com.thousif.trading.service.matching.StopTriggerEngine;
+import com.thousif.trading.service.sequencer.OrderSequencer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// Runs the order service against a real journal, ledger, handle index and matching engine; only the
+// database side is mocked, and stop activation must not touch it. Batches go through the sequencer,
+// which runs inline while it is disabled.
+class OrderServiceTest {
+
+    @TempDir
+    Path dir;
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final OrderRepository orderRepository = mock(OrderRepository.class);
+    private final JournalProjector projector = mock(JournalProjector.class);
+    private final StockService stockService = mock(StockService.class);
+    private final StopTriggerEngine stopTriggerEngine = spy(new StopTriggerEngine());
+    private AccountLedger ledger;
+    private OrderHandleIndex handles;
+    private OrderJournal journal;
+    private MatchingEngine matchingEngine;
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        PortfolioRepository portfolioRepository = mock(PortfolioRepository.class);
+        when(portfolioRepository.findHoldings(anyLong())).thenReturn(List.of());
+        ledger = new AccountLedger(userRepository, portfolioRepository);
+        handles = new OrderHandleIndex();
+
+        journal = new OrderJournal(projector, ledger, handles);
+        ReflectionTestUtils.setField(journal, "directory", dir.toString());
+        ReflectionTestUtils.setField(journal, "segmentSizeMb", 1);
+        ReflectionTestUtils.setField(journal, "fsync", false);
+        journal.open();
+
+        matchingEngine = new MatchingEngine(journal, mock(TickStore.class));
+        orderService = new OrderService(orderRepository, mock(UserService.class), stockService,
+                mock(OrderMetrics.class), matchingEngine, stopTriggerEngine, journal, projector,
+                new IdGenerator(), ledger, mock(OrderExpiryService.class), handles);
+        ReflectionTestUtils.setField(orderService, "protectionPercent", new BigDecimal("5"));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        journal.close();
+    }
+
+    private AccountLedger.Account account(long userId, String username, String balance) {
+        User user = User.builder()
+                .id(userId)
+                .username(username)
+                .availableBalance(new BigDecimal(balance))
+                .usedMargin(BigDecimal.ZERO)
+                .build();
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(userRepository.findByUsername(username)).thenReturn(Optional.of(user));
+        return ledger.account(userId);
+    }
+
+    private void acceptStopMarketBuy(String orderId, long trigger, int quantity) {
+        journal.append(JournalRecord.builder()
+                .type(JournalRecordType.ACCEPT)
+                .orderId(orderId)
+                .symbol("TCS")
+                .userId(1L)
+                .username("alice")
+                .stockId(1L)
+                .transactionType(TransactionType.BUY)
+                .orderType(OrderType.SL_M)
+                .quantity(quantity)
+                .validity("DAY")
+                .triggerPrice(trigger)
+                .build());
+    }
+
+    private void restAsk(String orderId, long price, int quantity) {
+        matchingEngine.restore(new RestingOrder(orderId, "TCS", "bob", TransactionType.SELL, OrderType.LIMIT,
+                price, quantity, quantity));
+    }
+
+    private List<JournalRecord> journaled() {
+        List<JournalRecord> records = new ArrayList<>();
+        journal.replay(0, records::add);
+        return records;
+    }
+
+    @Test
+    void triggeredStopMarketBuyReservesUpToItsProtectionPrice() {
+        AccountLedger.Account alice = account(1L, "alice", "1000.00");
+        acceptStopMarketBuy("SLM1", 10_000, 5);
+        assertEquals(50_000, alice.getFreeMargin());
+        restAsk("S1", 10_400, 5);
+
+        // protection at 5% over the 100.00 trigger tick is 105.00
+        orderService.activateStopOrder("SLM1", 10_000);
+
+        List<JournalRecord> records = journaled();
+        assertEquals(List.of(JournalRecordType.ACCEPT, JournalRecordType.TRIGGER, JournalRecordType.AMEND,
+                JournalRecordType.FILL), records.stream().map(JournalRecord::getType).toList());
+        assertEquals(10_500, records.get(2).getPrice());
+        assertEquals(10_400, records.get(3).getPrice());
+        // the reservation was released in full, the account paid the traded value
+        assertEquals(new BigDecimal("480.00"), alice.getAvailableBalance());
+        assertEquals(BigDecimal.ZERO.setScale(2), alice.getUsedMarginAmount());
+        assertNull(handles.get("SLM1"));
+        verifyNoInteractions(orderRepository);
+        verify(projector, never()).awaitCaughtUp(anyLong());
+    }
+
+    @Test
+    void stopMarketBuyThatCannotCoverTheBandSweepsOnlyToItsTrigger() {
+        AccountLedger.Account alice = account(1L, "alice", "500.00");
+        acceptStopMarketBuy("SLM1", 10_000, 5);
+        assertEquals(0, alice.getFreeMargin());
+        restAsk("S1", 10_400, 5);
+
+        orderService.activateStopOrder("SLM1", 10_000);
+
+        List<JournalRecord> records = journaled();
+        assertEquals(List.of(JournalRecordType.ACCEPT, JournalRecordType.TRIGGER, JournalRecordType.CANCEL),
+                records.stream().map(JournalRecord::getType).toList());
+        // nothing traded beyond the margin held, and the cancel released it
+        assertEquals(new BigDecimal("500.00"), alice.getAvailableBalance());
+        assertEquals(50_000, alice.getFreeMargin());
+        assertEquals(1, (int) matchingEngine.read("TCS", book -> book.size()));
+    }
+
+    @Test
+    void stopMarketBuyFillsWithinTheReservedTriggerPrice() {
+        AccountLedger.Account alice = account(1L, "alice", "500.00");
+        acceptStopMarketBuy("SLM1", 10_000, 5);
+        restAsk("S1", 9_900, 2);
+        restAsk("S2", 10_000, 3);
+
+        orderService.activateStopOrder("SLM1", 10_000);
+
+        // 2 @ 99.00 and 3 @ 100.00, within the 500.00 held at the trigger price
+        assertEquals(new BigDecimal("2.00"), alice.getAvailableBalance());
+        assertEquals(200, alice.getFreeMargin());
+    }
+
+    private void listed(String symbol, long stockId) {
+        when(stockService.getStockBySymbol(symbol)).thenReturn(Stock.builder()
+                .id(stockId)
+                .symbol(symbol)
+                .currentPrice(new BigDecimal("100.00"))
+                .isActive(true)
+                .build());
+    }
+
+    private static OrderRequest buy(String symbol, OrderType type, String price, String trigger, int quantity,
+                                    String validity) {
+        return OrderRequest.builder()
+                .stockSymbol(symbol)
+                .transactionType(TransactionType.BUY)
+                .orderType(type)
+                .quantity(quantity)
+                .price(price != null ? new BigDecimal(price) : null)
+                .triggerPrice(trigger != null ? new BigDecimal(trigger) : null)
+                .validity(validity)
+                .build();
+    }
+
+    @Test
+    void batchWithAnInvalidOrderAcceptsNothing() {
+        AccountLedger.Account alice = account(1L, "alice", "2000.00");
+        listed("TCS", 1L);
+        OrderSequencer sequencer = new OrderSequencer(orderService, mock(ClientOrderIdCache.class));
+
+        List<OrderRequest> requests = List.of(
+                buy("TCS", OrderType.LIMIT, "100.00", null, 5, "DAY"),
+                buy("TCS", OrderType.LIMIT, null, null, 5, "DAY"));
+
+        Exception failure = assertThrows(Exception.class, () -> sequencer.placeOrders(requests, "alice").join());
+        assertInstanceOf(OrderValidationException.class, failure.getCause());
+        assertTrue(failure.getCause().getMessage().startsWith("Order 2:"));
+        assertEquals(200_000, alice.getFreeMargin());
+        assertTrue(journaled().isEmpty());
+        assertEquals(0, handles.size());
+    }
+
+    @Test
+    void batchKeepsReservationsAndJournalInStepWithTheOrdersThatWereAccepted() {
+        AccountLedger.Account alice = account(1L, "alice", "2000.00");
+        listed("TCS", 1L);
+        listed("INFY", 2L);
+        listed("WIPRO", 3L);
+        // routing the stop order fails after it was accepted
+        doThrow(new IllegalStateException("stop index unavailable")).when(stopTriggerEngine)
+                .register(argThat((Order order) -> "WIPRO".equals(order.getStock().getSymbol())));
+        OrderSequencer sequencer = new OrderSequencer(orderService, mock(ClientOrderIdCache.class));
+
+        List<OrderResponse> responses = sequencer.placeOrders(List.of(
+                buy("TCS", OrderType.LIMIT, "100.00", null, 5, "DAY"),
+                // nothing to trade against, the IOC remainder is cancelled
+                buy("INFY", OrderType.LIMIT, "100.00", null, 3, "IOC"),
+                buy("WIPRO", OrderType.SL, "51.00", "50.00", 4, "DAY")), "alice").join();
+
+        assertEquals(List.of(OrderStatus.OPEN, OrderStatus.CANCELLED, OrderStatus.REJECTED),
+                responses.stream().map(OrderResponse::getStatus).toList());
+
+        List<JournalRecord> records = journaled();
+        assertEquals(List.of(JournalRecordType.ACCEPT, JournalRecordType.ACCEPT, JournalRecordType.ACCEPT,
+                JournalRecordType.CANCEL, JournalRecordType.REJECT),
+                records.stream().map(JournalRecord::getType).toList());
+        assertEquals(List.of("TCS", "INFY", "WIPRO", "INFY", "WIPRO"),
+                records.stream().map(JournalRecord::getSymbol).toList());
+        assertEquals(3, records.get(3).getQuantity());
+        assertEquals(4, records.get(4).getQuantity());
+
+        // only the resting TCS order still holds margin and a handle
+        assertEquals(200_000 - 50_000, alice.getFreeMargin());
+        assertEquals(1, handles.size());
+        assertEquals(5, handles.get(records.get(0).getOrderId()).getRemaining());
+        assertNotNull(matchingEngine.read("TCS", book -> book.get(records.get(0).getOrderId())));
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.thousif.trading.service.trading;
+
+import com.thousif.trading.entity.JournalCheckpoint;
+import com.thousif.trading.entity.JournalDeadLetter;
+import com.thousif.trading.repository.JournalCheckpointRepository;
+import com.thousif.trading.repository.JournalDeadLetterRepository;
+import com.thousif.trading.service.id.IdGenerator;
+import com.thousif.trading.service.journal.JournalRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class TransactionWriterTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final JournalCheckpointRepository checkpointRepository = mock(JournalCheckpointRepository.class);
+    private final JournalDeadLetterRepository deadLetterRepository = mock(JournalDeadLetterRepository.class);
+    private TransactionWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        when(checkpointRepository.findById("transaction-writer")).thenReturn(Optional.empty());
+        IdGenerator idGenerator = mock(IdGenerator.class);
+        when(idGenerator.nextTransactionId()).thenReturn("TXN");
+        writer = new TransactionWriter(jdbcTemplate, checkpointRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), idGenerator, deadLetterRepository);
+        ReflectionTestUtils.setField(writer, "batchSize", 100);
+        ReflectionTestUtils.setField(writer, "lingerMillis", 200L);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.stop();
+    }
+
+    // the orders table holds the given order ids
+    private void persisted(Set<String> orderIds) {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            Object[] args = (Object[]) invocation.getRawArguments()[2];
+            for (Object orderId : args) {
+                if (orderIds.contains(orderId)) {
+                    ResultSet rs = mock(ResultSet.class);
+                    when(rs.getString("order_id")).thenReturn((String) orderId);
+                    when(rs.getString("transaction_type")).thenReturn(((String) orderId).startsWith("B") ? "BUY" : "SELL");
+                    handler.processRow(rs);
+                }
+            }
+            return null;
+        }).when(jdbcTemplate).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+    }
+
+    private static JournalRecord fill(long sequence, String buyOrderId, String sellOrderId) {
+        JournalRecord fill = JournalRecord.fill("TCS", buyOrderId, sellOrderId, 10_000, 2);
+        fill.setSequence(sequence);
+        fill.setTimestamp(1_000);
+        return fill;
+    }
+
+    private void awaitWritten(long sequence) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (writer.getWrittenSequence() < sequence && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(sequence, writer.getWrittenSequence());
+    }
+
+    private long lastCheckpoint() {
+        ArgumentCaptor<JournalCheckpoint> captor = ArgumentCaptor.forClass(JournalCheckpoint.class);
+        verify(checkpointRepository, atLeastOnce()).save(captor.capture());
+        return captor.getValue().getSequence();
+    }
+
+    private int insertedRows() {
+        return mockingDetails(jdbcTemplate).getInvocations().stream()
+                .filter(invocation -> invocation.getMethod().getName().equals("update"))
+                .mapToInt(invocation -> ((Object[]) invocation.getRawArguments()[1]).length / 12)
+                .sum();
+    }
+
+    @Test
+    void fillsAreWrittenInOneStatementWithTheirCheckpoint() throws InterruptedException {
+        persisted(Set.of("B1", "B2", "S1"));
+        writer.start();
+
+        JournalRecord cancel = JournalRecord.cancel("B9", "TCS", 1);
+        cancel.setSequence(3);
+        writer.enqueue(List.of(fill(1, "B1", "S1"), fill(2, "B2", "S1"), cancel, fill(4, "B1", null)));
+        // already queued, a replayed batch is not written twice
+        writer.enqueue(List.of(fill(2, "B2", "S1")));
+
+        awaitWritten(4);
+        verify(jdbcTemplate, times(1)).update(anyString(), any(Object[].class));
+        assertEquals(5, insertedRows());
+        assertEquals(4, lastCheckpoint());
+        verifyNoInteractions(deadLetterRepository);
+    }
+
+    @Test
+    void sidesOfADeadLetteredOrderAreSkipped() throws InterruptedException {
+        persisted(Set.of("S1"));
+        when(deadLetterRepository.findByOrderIdIn(any())).thenReturn(List.of(
+                JournalDeadLetter.builder().sequence(1L).recordType("ACCEPT").orderId("B1").build()));
+        writer.start();
+
+        writer.enqueue(List.of(fill(2, "B1", "S1")));
+
+        awaitWritten(2);
+        assertEquals(1, insertedRows());
+        assertEquals(2, lastCheckpoint());
+    }
+
+    @Test
+    void fillWhoseOrderStaysMissingIsDeadLetteredAfterRetries() throws InterruptedException {
+        persisted(Set.of("S1", "B2"));
+        when(deadLetterRepository.findByOrderIdIn(any())).thenReturn(List.of());
+        writer.start();
+
+        writer.enqueue(List.of(fill(5, "B1", "S1"), fill(6, "B2", "S1")));
+
+        awaitWritten(6);
+        // retried twice before giving up on the missing order
+        verify(jdbcTemplate, times(3)).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+        ArgumentCaptor<JournalDeadLetter> letter = ArgumentCaptor.forClass(JournalDeadLetter.class);
+        verify(deadLetterRepository).save(letter.capture());
+        assertEquals(5L, letter.getValue().getSequence());
+        assertEquals("B1", letter.getValue().getOrderId());
+        assertEquals(3, insertedRows());
+        assertEquals(6, lastCheckpoint());
+    }
+
+}
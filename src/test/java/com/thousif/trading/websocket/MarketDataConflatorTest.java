@@ -0,0 +1,119 @@
+package com.thousif.trading.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MarketDataConflatorTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MarketDataConflator conflator = new MarketDataConflator(registry, objectMapper);
+    private final MessageChannel channel = mock(MessageChannel.class);
+
+    private Message<?> delta(String json) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId("s1");
+        accessor.setSubscriptionId("sub-1");
+        accessor.setNativeHeader(MarketDataConflator.SYMBOL_HEADER, "TCS");
+        accessor.setNativeHeader(MarketDataConflator.DELTA_HEADER, "true");
+        return MessageBuilder.createMessage(json.getBytes(), accessor.getMessageHeaders());
+    }
+
+    private Message<String> update(String session, String symbol, String payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setSessionId(session);
+        accessor.setSubscriptionId("sub-0");
+        accessor.setDestination("/topic/market-data");
+        if (symbol != null) {
+            accessor.setNativeHeader(MarketDataConflator.SYMBOL_HEADER, symbol);
+        }
+        return MessageBuilder.createMessage(payload, accessor.getMessageHeaders());
+    }
+
+    @Test
+    void firstUpdateGoesOutAtOnceAndLaterOnesKeepOnlyTheLatestUntilFlushed() {
+        Message<String> first = update("s1", "TCS", "100");
+        assertSame(first, conflator.preSend(first, channel));
+        assertNull(conflator.preSend(update("s1", "TCS", "101"), channel));
+        assertNull(conflator.preSend(update("s1", "TCS", "102"), channel));
+        Message<String> other = update("s1", "INFY", "50");
+        assertSame(other, conflator.preSend(other, channel));
+        assertEquals(1.0, registry.get("market_data.queue.depth").gauge().value());
+        assertEquals(1.0, registry.get("market_data.conflated").counter().count());
+
+        conflator.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Message<?>> sent = ArgumentCaptor.forClass(Message.class);
+        verify(channel).send(sent.capture());
+        assertEquals("102", sent.getValue().getPayload());
+        assertEquals(0.0, registry.get("market_data.queue.depth").gauge().value());
+        assertEquals(3.0, registry.get("market_data.sent").counter().count());
+
+        // the flushed copies pass straight through
+        Message<?> flushed = sent.getValue();
+        assertSame(flushed, conflator.preSend(flushed, channel));
+    }
+
+    @Test
+    void symbolStaysConflatedWhileBusyAndIsSentAtOnceAgainWhenQuiet() {
+        conflator.preSend(update("s1", "TCS", "100"), channel);
+        conflator.preSend(update("s1", "TCS", "101"), channel);
+        conflator.flush();
+
+        // the flush just sent 101, the next update still waits for the following one
+        assertNull(conflator.preSend(update("s1", "TCS", "102"), channel));
+        conflator.flush();
+        verify(channel, times(2)).send(any());
+
+        // a flush with nothing pending ends the busy period
+        conflator.flush();
+        Message<String> quiet = update("s1", "TCS", "103");
+        assertSame(quiet, conflator.preSend(quiet, channel));
+        verify(channel, times(2)).send(any());
+    }
+
+    @Test
+    void sessionsAreConflatedIndependently() {
+        conflator.preSend(update("s1", "TCS", "100"), channel);
+        Message<String> otherSession = update("s2", "TCS", "100");
+        assertSame(otherSession, conflator.preSend(otherSession, channel));
+    }
+
+    @Test
+    void untaggedMessagesAreNotHeld() {
+        Message<String> message = update("s1", null, "Subscribed");
+        assertSame(message, conflator.preSend(message, channel));
+    }
+
+    @Test
+    void queuedDeltasAreMergedIntoOneUnbrokenRange() throws Exception {
+        assertNotNull(conflator.preSend(delta("{\"prevSeq\":3,\"seq\":4,\"price\":100}"), channel));
+        conflator.preSend(delta("{\"prevSeq\":4,\"seq\":5,\"price\":101,\"exchange\":\"NSE\"}"), channel);
+        conflator.preSend(delta("{\"prevSeq\":5,\"seq\":6,\"price\":102}"), channel);
+
+        conflator.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Message<?>> sent = ArgumentCaptor.forClass(Message.class);
+        verify(channel).send(sent.capture());
+        JsonNode merged = objectMapper.readTree((byte[]) sent.getValue().getPayload());
+        assertEquals(4, merged.get("prevSeq").asLong());
+        assertEquals(6, merged.get("seq").asLong());
+        assertEquals(102, merged.get("price").asInt());
+        assertEquals("NSE", merged.get("exchange").asText());
+    }
+
+}